@@ -4,53 +4,160 @@ import me.tien.metaminer.commands.*;
 import me.tien.metaminer.config.ConfigManager;
 import me.tien.metaminer.data.PlayerDataManager;
 import me.tien.metaminer.gui.UpgradeGUI;
+import me.tien.metaminer.listeners.BreakAggregator;
+import me.tien.metaminer.listeners.CapacityTracker;
 import me.tien.metaminer.listeners.InventoryManager;
+import me.tien.metaminer.listeners.MiningSessionManager;
 import me.tien.metaminer.listeners.MiningSpeedListener;
-import me.tien.metaminer.util.ScoreboardDisplay;
-import me.tien.metaminer.util.VoidChunkGenerator;
+import me.tien.metaminer.mine.BlockPlacementScheduler;
+import me.tien.metaminer.mine.Mine;
+import me.tien.metaminer.mine.MineManager;
+import me.tien.metaminer.mine.MineRegion;
+import me.tien.metaminer.mine.MineResetPipeline;
+import me.tien.metaminer.mine.MineStateStore;
+import me.tien.metaminer.mine.MineWorldLifecycle;
+import me.tien.metaminer.mine.MineWorldPool;
+import me.tien.metaminer.mine.PlotAllocator;
+import me.tien.metaminer.util.ExternalNftReader;
+import me.tien.metaminer.util.MineChunkGenerator;
+import me.tien.metaminer.util.NftRegistry;
 import org.bukkit.*;
-import org.bukkit.block.Block;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class MetaMiner extends JavaPlugin implements Listener, CommandExecutor {
 
     private ConfigManager configManager;
-    private final Set<Integer> protectedGlassLevels = new HashSet<>();
-    private boolean isGlassProtectionRegistered = false;
+    private BlockPlacementScheduler placementScheduler;
+    private MineManager mineManager;
+    private MineWorldPool worldPool;
+    private MineWorldLifecycle worldLifecycle;
+    private MineResetPipeline resetPipeline;
+    private NftRegistry nftRegistry;
+    private CapacityTracker capacityTracker;
+    private MiningSessionManager sessionManager;
+    private BreakAggregator breakAggregator;
+    // Thế giới đang được chuyển từ pool theo tên; thư mục có thể chưa chép xong
+    private final Map<String, CompletableFuture<World>> claiming = new HashMap<>();
 
     @Override
     public void onEnable() {
         getLogger().info("MetaMiner đã được bật!");
         configManager = new ConfigManager(this);
+        // Tạo thư mục dữ liệu
+        if (!getDataFolder().exists()) getDataFolder().mkdir();
+        try {
+            PlayerDataManager.start(this, configManager.getDataStoreType(), configManager.getAutosaveSeconds(),
+                    configManager.getOfflineCacheSize());
+        } catch (IOException e) {
+            getLogger().severe("Không thể mở kho dữ liệu người chơi: " + e.getMessage());
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+        // Người chơi đã online trước khi plugin bật (/reload, plugman) không qua PlayerJoinEvent
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            PlayerDataManager.load(p);
+        }
+        MineRegion region = new MineRegion(0, 64, 0, configManager.getMineWidth(), configManager.getMineHeight(),
+                configManager.getMineWidth(), configManager.getMineHeadroom());
+        mineManager = new MineManager(region, createPlotAllocator(), new MineStateStore(new File(getDataFolder(), "mines"), getLogger()));
+        worldLifecycle = new MineWorldLifecycle(this, configManager.getIdleUnloadMinutes(), configManager.getMaxLoadedMineWorlds());
+        placementScheduler = new BlockPlacementScheduler(this, configManager.getPlacementBudgetMillis());
+        placementScheduler.start();
+        resetPipeline = new MineResetPipeline(this);
+        capacityTracker = new CapacityTracker(this);
+        sessionManager = new MiningSessionManager(this);
+        breakAggregator = new BreakAggregator(this);
 
         // Đăng ký lệnh và sự kiện
         getServer().getPluginManager().registerEvents(this, this);
-        getServer().getPluginManager().registerEvents(new UpgradeGUI(), this);
+        getServer().getPluginManager().registerEvents(new UpgradeGUI(this), this);
         getServer().getPluginManager().registerEvents(new MiningSpeedListener(this), this);
-        getServer().getPluginManager().registerEvents(new InventoryManager(), this);
-
-        getCommand("claim").setExecutor(new ClaimCommand(this));
+        getServer().getPluginManager().registerEvents(new InventoryManager(this), this);
+        getServer().getPluginManager().registerEvents(worldLifecycle, this);
+        getServer().getPluginManager().registerEvents(resetPipeline, this);
+        getServer().getPluginManager().registerEvents(capacityTracker, this);
+        getServer().getPluginManager().registerEvents(sessionManager, this);
+        getServer().getPluginManager().registerEvents(breakAggregator, this);
+        worldLifecycle.start();
+        loadPlotWorld();
+
+        ClaimCommand claimCommand = new ClaimCommand(this);
+        getCommand("claim").setExecutor(claimCommand);
+        claimCommand.startAutoClaim(configManager.getAutoClaimSeconds());
         getCommand("upgrade").setExecutor(new UpgradeCommand());
-        getCommand("minearea").setExecutor(new MineAreaCommand());
-        getCommand("lobby").setExecutor(new LobbyCommand());
+        getCommand("minearea").setExecutor(new MineAreaCommand(this));
+        LobbyCommand lobbyCommand = new LobbyCommand();
+        getCommand("lobby").setExecutor(lobbyCommand);
+        getServer().getPluginManager().registerEvents(lobbyCommand, this);
         getCommand("resetmine").setExecutor(this);
+        getCommand("metaminer").setExecutor(new MetaMinerCommand(this));
 
-        // Tạo thư mục dữ liệu
-        if (!getDataFolder().exists()) getDataFolder().mkdir();
+        nftRegistry = new NftRegistry(this, ExternalNftReader.nftPluginFolder);
+        nftRegistry.start();
+
+        worldPool = new MineWorldPool(this, mineManager.isPlotMode() ? 0 : configManager.getWorldPoolSize());
+        worldPool.start();
+    }
+
+    // Chế độ plot: mọi khu mỏ là một ô trong thế giới chung thay vì một thế giới riêng
+    private PlotAllocator createPlotAllocator() {
+        if (!configManager.isPlotMode()) return null;
+
+        int plotSize = configManager.getPlotSize();
+        int columns = configManager.getPlotColumns();
+        PlotAllocator plots = new PlotAllocator(this, new File(getDataFolder(), "plots.yml"), plotSize, columns);
+        plots.load();
+        return plots;
+    }
+
+    // Tạo sau khi đăng ký MineWorldLifecycle để thế giới chung cũng nhận cấu hình nhẹ
+    private void loadPlotWorld() {
+        PlotAllocator plots = mineManager.getPlots();
+        if (plots == null || Bukkit.getWorld(MineManager.PLOT_WORLD) != null) return;
+
+        new WorldCreator(MineManager.PLOT_WORLD)
+                .environment(World.Environment.NORMAL)
+                .generator(MineChunkGenerator.grid(configManager, mineManager.getRegion(), plots.getPlotSize(), plots.getColumns()))
+                .type(WorldType.FLAT)
+                .createWorld();
+    }
+
+    // Đọc file dữ liệu ngoài main thread, trước khi người chơi thực sự vào server
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        PlayerDataManager.preload(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            PlayerDataManager.discardPreload(event.getPlayer().getUniqueId());
+        }
+    }
+
+    // MONITOR: các listener khác vẫn đọc được hồ sơ trong lúc xử lý thoát
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        PlayerDataManager.unload(event.getPlayer());
     }
 
     @EventHandler
@@ -58,64 +165,93 @@ public class MetaMiner extends JavaPlugin implements Listener, CommandExecutor {
         Player player = event.getPlayer();
         PlayerDataManager.load(player);
 
-        String worldName = "mine_" + player.getName();
-        World mineWorld = Bukkit.getWorld(worldName);
-
-        if (mineWorld == null) {
-            mineWorld = createPlayerMiningWorld(player.getName());
-            if (mineWorld != null) {
-                ItemStack diamondPickaxe = new ItemStack(Material.DIAMOND_PICKAXE);
-                ItemMeta meta = diamondPickaxe.getItemMeta();
-                if (meta != null) {
-                    meta.setDisplayName(ChatColor.AQUA + "Cúp khởi đầu");
-                    diamondPickaxe.setItemMeta(meta);
-                }
-                player.getInventory().addItem(diamondPickaxe);
-                player.sendMessage(ChatColor.GREEN + "Bạn đã nhận được một cây cúp kim cương để bắt đầu đào!");
+        if (mineManager.isPlotMode()) {
+            // Ô mới đã có sẵn quặng do generator sinh ra, chỉ cần cấp chỉ số
+            if (mineManager.getMine(player) == null) {
+                mineManager.allocatePlot(player);
+                giveStarterPickaxe(player);
             }
+        } else {
+            ensureMiningWorld(player);
         }
+    }
 
-        // Chỉ cập nhật scoreboard nếu người chơi ở trong mining_lobby
-        if (player.getWorld().getName().equals("mining_lobby")) {
-            ScoreboardDisplay.show(player);
-            InventoryManager.updateLockedSlots(player);
+    private void ensureMiningWorld(Player player) {
+        String worldName = MineManager.worldNameFor(player);
+        World mineWorld = Bukkit.getWorld(worldName);
+        // Vào lại khi thế giới từ pool chưa chuyển xong: lượt cấp đang chạy sẽ hoàn tất nó
+        if (mineWorld != null || claiming.containsKey(worldName)) return;
+
+        // Thế giới đã có trên đĩa (đã bị unload): không nạp đồng bộ lúc vào server,
+        // /minearea sẽ nạp lại qua MineWorldLifecycle.getOrLoad khi người chơi cần
+        if (new File(Bukkit.getWorldContainer(), worldName).exists()) return;
+
+        UUID uuid = player.getUniqueId();
+        CompletableFuture<World> pooled = worldPool.claim(worldName, mineSeed(uuid));
+        if (pooled != null) {
+            claiming.put(worldName, pooled);
+            // Thế giới lấy từ pool: chỉ bước createWorld cuối cùng chạy trên main thread
+            pooled.whenComplete((world, error) -> {
+                claiming.remove(worldName);
+                if (error != null) {
+                    getLogger().severe("Không thể nạp thế giới đào từ pool cho " + player.getName() + ": " + error);
+                    return;
+                }
+                if (world == null) {
+                    if (createPlayerMiningWorld(player) != null) giveStarterPickaxe(Bukkit.getPlayer(uuid));
+                    return;
+                }
+                mineManager.register(world, true);
+                getLogger().info("Đã cấp thế giới đào từ pool cho người chơi: " + player.getName());
+                giveStarterPickaxe(Bukkit.getPlayer(uuid));
+            });
+        } else if (createPlayerMiningWorld(player) != null) {
+            giveStarterPickaxe(player);
         }
     }
 
-    private World createPlayerMiningWorld(String playerName) {
-        String worldName = "mine_" + playerName;
-        File worldsFolder = new File(getDataFolder().getParentFile(), "worlds");
-        File worldFolder = new File(worldsFolder, worldName);
+    private void giveStarterPickaxe(Player player) {
+        if (player == null || !player.isOnline()) return;
 
-        // Đảm bảo thư mục "worlds" tồn tại
-        if (!worldsFolder.exists()) {
-            worldsFolder.mkdirs();
+        ItemStack diamondPickaxe = new ItemStack(Material.DIAMOND_PICKAXE);
+        ItemMeta meta = diamondPickaxe.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(ChatColor.AQUA + "Cúp khởi đầu");
+            diamondPickaxe.setItemMeta(meta);
         }
+        player.getInventory().addItem(diamondPickaxe);
+        capacityTracker.markDirty(player);
+        player.sendMessage(ChatColor.GREEN + "Bạn đã nhận được một cây cúp kim cương để bắt đầu đào!");
+    }
+
+    private World createPlayerMiningWorld(Player player) {
+        String playerName = player.getName();
+        String worldName = MineManager.worldNameFor(player);
+        File worldFolder = new File(Bukkit.getWorldContainer(), worldName);
 
         // Kiểm tra nếu thế giới đã tồn tại
         World mineWorld = Bukkit.getWorld(worldName);
         if (mineWorld == null && worldFolder.exists()) {
-            mineWorld = Bukkit.createWorld(new WorldCreator(worldName));
+            mineWorld = Bukkit.createWorld(new WorldCreator(worldName)
+                    .generator(new MineChunkGenerator(configManager, mineManager.getRegion())));
         }
 
         // Tạo thế giới nếu nó chưa tồn tại
         if (mineWorld == null) {
             WorldCreator creator = new WorldCreator(worldName);
             creator.environment(World.Environment.NORMAL);
-            creator.generator(new VoidChunkGenerator());
+            // Khu mỏ được ghi thẳng vào ChunkData khi tạo thế giới
+            creator.generator(new MineChunkGenerator(configManager, mineManager.getRegion()));
             creator.type(WorldType.FLAT);
+            // Seed cố định theo UUID để bố cục khu mỏ của người chơi tái tạo được
+            creator.seed(mineSeed(player.getUniqueId()));
             creator.createWorld();
-
-            // Di chuyển thế giới vào thư mục "worlds"
-            if (worldFolder.exists()) {
-                getLogger().info("Thư mục thế giới đã tồn tại: " + worldFolder.getPath());
-            } else {
-                getLogger().info("Đang tạo thư mục thế giới: " + worldFolder.getPath());
-            }
+            getLogger().info("Đang tạo thư mục thế giới: " + worldFolder.getPath());
 
             mineWorld = Bukkit.getWorld(worldName);
             if (mineWorld != null) {
-                fillMineArea(mineWorld, 0, 64, 0);
+                // Thế giới mới sinh đầy đủ quặng nên có thể theo dõi block bị đào ngay từ đầu
+                mineManager.register(mineWorld, true);
                 getLogger().info("Đã tạo thế giới đào cho người chơi: " + playerName);
             } else {
                 getLogger().severe("Không thể tạo thế giới đào cho người chơi: " + playerName);
@@ -124,54 +260,8 @@ public class MetaMiner extends JavaPlugin implements Listener, CommandExecutor {
         return mineWorld;
     }
 
-    private void fillMineArea(World world, int startX, int startY, int startZ) {
-        if (world == null) {
-            getLogger().severe("Không thể tạo khu mỏ: Thế giới không tồn tại!");
-            return;
-        }
-
-        getLogger().info("Bắt đầu tạo khu mỏ tại vị trí (" + startX + ", " + startY + ", " + startZ + ")");
-
-        List<BlockData> blockUpdateQueue = new ArrayList<>();
-
-        for (int x = -1; x <= 16; x++) {
-            for (int y = -1; y <= 26; y++) {
-                for (int z = -1; z <= 16; z++) {
-                    Material material;
-                    if (y == -1 || ((x == -1 || x == 16 || z == -1 || z == 16) && y <= 26)) {
-                        material = Material.BEDROCK;
-                    } else if (y == 21) {
-                        material = Material.AIR;
-                    } else if (y <= 20) {
-                        material = configManager.getRandomOre();
-                    } else {
-                        material = Material.AIR;
-                    }
-                    blockUpdateQueue.add(new BlockData(startX + x, startY + y, startZ + z, material));
-                }
-            }
-        }
-
-        int batchSize = 500;
-        int totalBlocks = blockUpdateQueue.size();
-        int batches = (int) Math.ceil((double) totalBlocks / batchSize);
-
-        for (int i = 0; i < batches; i++) {
-            final int batchIndex = i;
-            Bukkit.getScheduler().runTaskLater(this, () -> {
-                int start = batchIndex * batchSize;
-                int end = Math.min(start + batchSize, totalBlocks);
-
-                for (int j = start; j < end; j++) {
-                    BlockData data = blockUpdateQueue.get(j);
-                    world.getBlockAt(data.x, data.y, data.z).setType(data.material);
-                }
-
-                if (batchIndex == batches - 1) {
-                    getLogger().info("Hoàn thành việc tạo khu mỏ!");
-                }
-            }, i * 2L);
-        }
+    private static long mineSeed(UUID uuid) {
+        return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
     }
 
     @Override
@@ -182,141 +272,72 @@ public class MetaMiner extends JavaPlugin implements Listener, CommandExecutor {
         }
 
         if ("resetmine".equals(command.getName())) {
-            World world = player.getWorld();
-            String worldPrefix = "mine_";
-
-            if (!world.getName().startsWith(worldPrefix)) {
+            Mine mine = mineManager.getMine(player);
+            if (mine == null || mineManager.getMineAt(player.getLocation()) != mine) {
                 player.sendMessage(ChatColor.RED + "Bạn phải ở trong thế giới đào của mình để sử dụng lệnh này!");
                 return true;
             }
 
-            int startX = 0;
-            int startY = 64;
-            int startZ = 0;
-
-            resetMineWithGlassBarrier(player, world, startX, startY, startZ);
+            resetPipeline.reset(mine, player);
             return true;
         }
 
         return false;
     }
 
-    public void resetMineWithGlassBarrier(Player player, World world, int startX, int startY, int startZ) {
-        int glassY = startY + 23;
-        List<Block> glassBlocks = new ArrayList<>();
-
-        player.sendMessage(ChatColor.GOLD + "Đang chuẩn bị reset khu đào...");
-
-        int batchSize = 200;
-        int totalBlocks = 16 * 16;
-        int batches = (int) Math.ceil((double) totalBlocks / batchSize);
-
-        for (int i = 0; i < batches; i++) {
-            final int batchIndex = i;
-            Bukkit.getScheduler().runTaskLater(this, () -> {
-                int start = batchIndex * batchSize;
-                int end = Math.min(start + batchSize, totalBlocks);
-
-                for (int j = start; j < end; j++) {
-                    int relX = j % 16;
-                    int relZ = j / 16;
-                    int x = startX + relX;
-                    int z = startZ + relZ;
+    @Override
+    public void onDisable() {
+        if (placementScheduler != null) placementScheduler.stop();
+        if (mineManager != null) {
+            mineManager.saveAll();
+            if (mineManager.getPlots() != null) mineManager.getPlots().flush();
+        }
+        if (nftRegistry != null) nftRegistry.stop();
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            PlayerDataManager.save(p);
+        }
+        // Chờ luồng ghi xử lý hết hàng đợi trước khi plugin bị gỡ
+        PlayerDataManager.shutdown();
+        getLogger().info("MetaMiner đã tắt.");
+    }
 
-                    Block block = world.getBlockAt(x, glassY, z);
-                    block.setType(Material.GLASS);
-                    glassBlocks.add(block);
-                }
+    public ConfigManager getConfigManager() {
+        return configManager;
+    }
 
-                if (batchIndex == batches - 1) {
-                    Location teleportLoc = new Location(world, startX + 8, glassY + 1, startZ + 8);
-                    player.teleport(teleportLoc);
-                    startMineReset(player, world, startX, startY, startZ, glassBlocks);
-                }
-            }, i);
-        }
-        registerGlassProtection(glassY);
+    public BlockPlacementScheduler getPlacementScheduler() {
+        return placementScheduler;
     }
 
-    private void startMineReset(Player player, World world, int startX, int startY, int startZ, List<Block> glassBlocks) {
-        new BukkitRunnable() {
-            int countdown = 10;
-            @Override
-            public void run() {
-                if (countdown > 0) {
-                    player.sendTitle(
-                            ChatColor.GOLD + "Reset trong " + countdown + "s",
-                            ChatColor.YELLOW + "Vui lòng đợi...", 5, 10, 5
-                    );
-                    countdown--;
-                } else {
-                    this.cancel();
-                    player.sendMessage(ChatColor.YELLOW + "Đang reset khu mỏ...");
-
-                    resetMine(world, startX, startY, startZ, () -> {
-                        removeGlassBarrier(glassBlocks);
-                        Location mineCenter = new Location(world, startX + 8, startY + 21, startZ + 8);
-                        player.teleport(mineCenter);
-                        player.sendMessage(ChatColor.GREEN + "✅ Khu mỏ đã được reset!");
-                    });
-                }
-            }
-        }.runTaskTimer(this, 0L, 20L);
+    public MineManager getMineManager() {
+        return mineManager;
     }
 
-    private void resetMine(World world, int startX, int startY, int startZ, Runnable onComplete) {
-        fillMineArea(world, startX, startY, startZ);
-        onComplete.run();
+    public MineResetPipeline getResetPipeline() {
+        return resetPipeline;
     }
 
-    private void removeGlassBarrier(List<Block> glassBlocks) {
-        Bukkit.getScheduler().runTask(this, () -> {
-            for (Block block : glassBlocks) {
-                block.setType(Material.AIR);
-            }
-        });
+    public BreakAggregator getBreakAggregator() {
+        return breakAggregator;
     }
 
-    private void registerGlassProtection(int glassY) {
-        protectedGlassLevels.add(glassY);
-
-        if (!isGlassProtectionRegistered) {
-            getServer().getPluginManager().registerEvents(new Listener() {
-                @EventHandler
-                public void onBlockBreak(BlockBreakEvent event) {
-                    Block block = event.getBlock();
-                    if (block.getType() == Material.GLASS && protectedGlassLevels.contains(block.getY())) {
-                        event.setCancelled(true);
-                        Player player = event.getPlayer();
-                        player.sendMessage(ChatColor.RED + "Không thể đập vỡ lớp kính bảo vệ!");
-                    }
-                }
-            }, this);
-            isGlassProtectionRegistered = true;
-        }
+    public MiningSessionManager getSessionManager() {
+        return sessionManager;
     }
 
-    @Override
-    public void onDisable() {
-        for (Player p : Bukkit.getOnlinePlayers()) {
-            PlayerDataManager.save(p);
-        }
-        getLogger().info("MetaMiner đã tắt.");
+    public CapacityTracker getCapacityTracker() {
+        return capacityTracker;
     }
 
-    private static class BlockData {
-        int x, y, z;
-        Material material;
+    public NftRegistry getNftRegistry() {
+        return nftRegistry;
+    }
 
-        public BlockData(int x, int y, int z, Material material) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.material = material;
-        }
+    public MineWorldPool getWorldPool() {
+        return worldPool;
     }
 
-    public ConfigManager getConfigManager() {
-        return configManager;
+    public MineWorldLifecycle getWorldLifecycle() {
+        return worldLifecycle;
     }
 }
\ No newline at end of file
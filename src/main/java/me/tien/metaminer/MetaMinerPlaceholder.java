@@ -2,7 +2,12 @@ package me.tien.metaminer;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
+import me.tien.metaminer.mine.Mine;
+import me.tien.metaminer.mine.MineManager;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -32,18 +37,23 @@ public class MetaMinerPlaceholder extends PlaceholderExpansion {
     public @Nullable String onPlaceholderRequest(Player player, @NotNull String identifier) {
         if (player == null) return "";
 
-        String mineWorld = "mine_" + player.getName();
-        if (!player.getWorld().getName().equalsIgnoreCase(mineWorld)) return "";
+        // Chỉ hiển thị khi người chơi đang ở trong khu mỏ của chính mình
+        MineManager mineManager = JavaPlugin.getPlugin(MetaMiner.class).getMineManager();
+        Mine mine = mineManager.getMine(player);
+        if (mine == null || mineManager.getMineAt(player.getLocation()) != mine) return "";
 
+        // Hồ sơ chưa nạp xong (vừa vào server): chưa có gì để hiển thị
+        PlayerProfile profile = PlayerDataManager.findProfile(player.getUniqueId());
+        if (profile == null) return "";
         switch (identifier.toLowerCase()) {
             case "points":
-                return String.valueOf(PlayerDataManager.getPoints(player.getUniqueId()));
+                return String.valueOf(profile.getPoints());
             case "speed":
-                return String.valueOf(PlayerDataManager.getUpgrade(player.getUniqueId(), "speed"));
+                return String.valueOf(profile.getLevel(Upgrade.SPEED));
             case "value":
-                return String.valueOf(PlayerDataManager.getUpgrade(player.getUniqueId(), "value"));
+                return String.valueOf(profile.getLevel(Upgrade.VALUE));
             case "storage":
-                return String.valueOf(PlayerDataManager.getUpgrade(player.getUniqueId(), "storage"));
+                return String.valueOf(profile.getLevel(Upgrade.STORAGE));
             default:
                 return null;
         }
@@ -1,16 +1,20 @@
 package me.tien.metaminer.commands;
 
 import me.tien.metaminer.MetaMiner;
-import me.tien.metaminer.util.ScoreboardDisplay;
+import me.tien.metaminer.config.ConfigManager;
+import me.tien.metaminer.config.ConfigSnapshot;
 import me.tien.metaminer.data.PlayerDataManager;
-import org.bukkit.Material;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
+import me.tien.metaminer.mine.Mine;
+import me.tien.metaminer.util.ScoreboardDisplay;
+import org.bukkit.Bukkit;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.ChatColor;
 
-import java.util.UUID;
-
 public class ClaimCommand implements CommandExecutor {
 
     private final MetaMiner plugin;
@@ -22,30 +26,75 @@ public class ClaimCommand implements CommandExecutor {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player p)) return true;
-        UUID uuid = p.getUniqueId();
-        int valueMultiplier = 1 + PlayerDataManager.getUpgrade(uuid, "value");
-        int total = 0;
-        for (ItemStack item : p.getInventory().getContents()) {
-            if (item == null) continue;
-            // Apply the value upgrade multiplier
-            Material type = item.getType();
-            int basePointValue = plugin.getConfigManager().getPointValue(type);
-            int adjustedPointValue = basePointValue * valueMultiplier;
-            if (adjustedPointValue > 0) {
-                int val = adjustedPointValue * item.getAmount();
-                total += val;
-                p.getInventory().remove(item);
-            }
+        if (PlayerDataManager.findProfile(p.getUniqueId()) == null) {
+            p.sendMessage(ChatColor.RED + "Dữ liệu của bạn đang được tải, vui lòng thử lại sau.");
+            return true;
         }
 
+        long total = claim(p);
         if (total > 0) {
-            PlayerDataManager.addPoints(p.getUniqueId(), total);
             p.sendMessage(ChatColor.GREEN + "Bạn đã nhận " + total + " điểm!");
         } else {
             p.sendMessage(ChatColor.RED + "Bạn không có block nào hợp lệ.");
         }
-
-        ScoreboardDisplay.show(p);
         return true;
     }
-}
\ No newline at end of file
+
+    // Tự động claim cho người chơi đang đứng trong khu mỏ của chính mình
+    public void startAutoClaim(int intervalSeconds) {
+        if (intervalSeconds <= 0) return;
+
+        long period = intervalSeconds * 20L;
+        Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                Mine mine = plugin.getMineManager().getMine(p);
+                if (mine == null || mine != plugin.getMineManager().getMineAt(p.getLocation())) continue;
+                // Hồ sơ chưa nạp xong thì để lượt sau
+                if (PlayerDataManager.findProfile(p.getUniqueId()) == null) continue;
+
+                long total = claim(p);
+                if (total > 0) p.sendMessage(ChatColor.GREEN + "Tự động nhận " + total + " điểm.");
+            }
+        }, period, period);
+    }
+
+    // Đổi vật phẩm có giá trị thành điểm, trả về số điểm nhận được
+    public long claim(Player p) {
+        PlayerProfile profile = PlayerDataManager.getProfile(p);
+        ConfigManager configManager = plugin.getConfigManager();
+        // Một bản chụp cấu hình cho cả lượt claim
+        ConfigSnapshot config = configManager.getSnapshot();
+        int valueMultiplier = 1 + profile.getLevel(Upgrade.VALUE);
+        long points;
+        if (configManager.isVirtualStorage()) {
+            // Kho ảo: chỉ là phép tính trên bộ đếm, không duyệt túi đồ
+            points = profile.getVirtualStorage()
+                    .claim(material -> (long) config.getPointValue(material) * valueMultiplier);
+            if (points > 0) profile.markDirty();
+        } else {
+            // Một lượt qua túi đồ, ghi lại toàn bộ nội dung một lần thay vì remove() từng stack
+            PlayerInventory inventory = p.getInventory();
+            ItemStack[] contents = inventory.getContents();
+            long value = 0;
+            for (int i = 0; i < contents.length; i++) {
+                ItemStack item = contents[i];
+                if (item == null) continue;
+                int pointValue = config.getPointValue(item.getType());
+                if (pointValue <= 0) continue;
+                value += (long) pointValue * item.getAmount();
+                contents[i] = null;
+            }
+            if (value > 0) {
+                inventory.setContents(contents);
+                plugin.getCapacityTracker().markDirty(p);
+            }
+            points = value * valueMultiplier;
+        }
+        if (points <= 0) return 0;
+
+        long before = profile.getPoints();
+        profile.addPoints(points);
+        ScoreboardDisplay.updatePoints(p, before, profile.getPoints());
+        return points;
+    }
+}
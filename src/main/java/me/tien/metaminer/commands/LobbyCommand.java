@@ -8,13 +8,18 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
-public class LobbyCommand implements CommandExecutor {
+public class LobbyCommand implements CommandExecutor, Listener {
 
-    private static final Set<String> playersInLobby = new HashSet<>();
+    // Chỉ người chơi đang online; gỡ khi thoát
+    private static final Set<UUID> playersInLobby = new HashSet<>();
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
@@ -30,12 +35,17 @@ public class LobbyCommand implements CommandExecutor {
         }
         Location spawnLocation = new Location(lobbyWorld, 0, 70, 0);
         player.teleport(spawnLocation);
-        playersInLobby.add(player.getName()); // Add player to the tracking set
+        playersInLobby.add(player.getUniqueId()); // Add player to the tracking set
         player.sendMessage(ChatColor.GREEN + "Chào mừng đến với khu vực đào!");
         return true;
     }
 
-    public static boolean hasUsedLobbyCommand(String playerName) {
-        return playersInLobby.contains(playerName);
+    public static boolean hasUsedLobbyCommand(Player player) {
+        return playersInLobby.contains(player.getUniqueId());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        playersInLobby.remove(event.getPlayer().getUniqueId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package me.tien.metaminer.commands;
+
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.config.ConfigSnapshot;
+import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.Upgrade;
+import me.tien.metaminer.listeners.BreakAggregator;
+import me.tien.metaminer.mine.BlockPlacementScheduler;
+import me.tien.metaminer.mine.MineManager;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+public class MetaMinerCommand implements CommandExecutor {
+
+    private final MetaMiner plugin;
+
+    public MetaMinerCommand(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("metaminer.admin")) {
+            sender.sendMessage(ChatColor.RED + "Bạn không có quyền sử dụng lệnh này.");
+            return true;
+        }
+
+        if (args.length == 0) return false;
+
+        switch (args[0].toLowerCase()) {
+            case "stats":
+                BlockPlacementScheduler scheduler = plugin.getPlacementScheduler();
+                sender.sendMessage(ChatColor.GOLD + "Hàng đợi đặt block:");
+                sender.sendMessage(ChatColor.YELLOW + "Block đang chờ: " + ChatColor.WHITE + scheduler.getQueueDepth()
+                        + ChatColor.YELLOW + " (" + scheduler.getPendingJobs() + " công việc)");
+                sender.sendMessage(ChatColor.YELLOW + "Tick trước: " + ChatColor.WHITE + scheduler.getBlocksLastTick()
+                        + " block / " + String.format("%.2f", scheduler.getMillisLastTick()) + " ms");
+                sender.sendMessage(ChatColor.YELLOW + "Trung bình: " + ChatColor.WHITE
+                        + String.format("%.1f", scheduler.getAverageBlocksPerTick()) + " block/tick"
+                        + ChatColor.YELLOW + " (giới hạn " + scheduler.getBudgetMillis() + " ms/tick)");
+
+                MineManager mines = plugin.getMineManager();
+                sender.sendMessage(ChatColor.GOLD + "Reset khu mỏ: " + ChatColor.WHITE + mines.getResets() + " lần");
+                sender.sendMessage(ChatColor.YELLOW + "Block ghi lại: " + ChatColor.WHITE + mines.getBlocksRefilled()
+                        + ChatColor.YELLOW + ", bỏ qua: " + ChatColor.WHITE + mines.getBlocksSkipped());
+                sender.sendMessage(ChatColor.YELLOW + "Thế giới sẵn trong pool: " + ChatColor.WHITE
+                        + plugin.getWorldPool().getReadyCount());
+
+                BreakAggregator breaks = plugin.getBreakAggregator();
+                sender.sendMessage(ChatColor.GOLD + "Block đã đào: " + ChatColor.WHITE + breaks.getTotalBreaks()
+                        + ChatColor.YELLOW + " (tick trước: " + breaks.getBreaksLastTick() + " block / "
+                        + breaks.getPlayersLastTick() + " người chơi)");
+                for (Material ore : plugin.getConfigManager().getOreRates().keySet()) {
+                    sender.sendMessage(ChatColor.YELLOW + "  " + ore.name() + ": " + ChatColor.WHITE + breaks.getMined(ore));
+                }
+                sender.sendMessage(ChatColor.GOLD + "Hồ sơ người chơi: " + ChatColor.WHITE + PlayerDataManager.getOnlineCount()
+                        + ChatColor.YELLOW + " online, " + ChatColor.WHITE + PlayerDataManager.getOfflineCacheCount()
+                        + ChatColor.YELLOW + " trong cache offline");
+                return true;
+            case "profile":
+                if (args.length < 2) return false;
+                OfflinePlayer target = Bukkit.getOfflinePlayerIfCached(args[1]);
+                if (target == null) {
+                    sender.sendMessage(ChatColor.RED + "Không tìm thấy người chơi " + args[1] + ".");
+                    return true;
+                }
+                // Người chơi offline được đọc từ kho ở luồng nền, trả lời trên main thread
+                PlayerDataManager.lookup(target.getUniqueId()).thenAccept(profile -> Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (profile == null) {
+                        sender.sendMessage(ChatColor.RED + args[1] + " chưa có dữ liệu.");
+                        return;
+                    }
+                    sender.sendMessage(ChatColor.GOLD + args[1] + ": " + ChatColor.WHITE + profile.getPoints() + " điểm"
+                            + ChatColor.YELLOW + " (Speed " + profile.getLevel(Upgrade.SPEED)
+                            + ", Value " + profile.getLevel(Upgrade.VALUE)
+                            + ", Storage " + profile.getLevel(Upgrade.STORAGE) + ")");
+                }));
+                return true;
+            case "reload":
+                // Bảng quặng, điểm và NFT được thay nguyên khối; lượt fill/claim đang chạy giữ bản cũ
+                ConfigSnapshot snapshot = plugin.getConfigManager().reloadConfig();
+                sender.sendMessage(ChatColor.GREEN + "Đã nạp lại cấu hình: " + snapshot.getOreRates().size()
+                        + " loại quặng, " + snapshot.getNftDropChances().size() + " NFT.");
+                sender.sendMessage(ChatColor.GRAY + "Kích thước khu mỏ, chế độ plot và kho ảo cần khởi động lại để áp dụng.");
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package me.tien.metaminer.commands;
 
-import me.tien.metaminer.util.ScoreboardDisplay;
-import org.bukkit.Bukkit;
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.mine.Mine;
+import me.tien.metaminer.mine.MineManager;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -12,6 +13,12 @@ import org.bukkit.entity.Player;
 
 public class MineAreaCommand implements CommandExecutor {
 
+    private final MetaMiner plugin;
+
+    public MineAreaCommand(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player player)) {
@@ -20,7 +27,7 @@ public class MineAreaCommand implements CommandExecutor {
         }
 
         // Check if the player has used the /lobby command
-        if (!LobbyCommand.hasUsedLobbyCommand(player.getName())) {
+        if (!LobbyCommand.hasUsedLobbyCommand(player)) {
             player.sendMessage(ChatColor.RED + "Bạn phải sử dụng lệnh /lobby trước khi dùng lệnh này!");
             return true;
         }
@@ -31,19 +38,25 @@ public class MineAreaCommand implements CommandExecutor {
             return true;
         }
 
-        // Get the player's mining world
-        String worldName = "mine_" + player.getName();
-        World mineWorld = Bukkit.getWorld(worldName);
-
-        if (mineWorld == null) {
-            player.sendMessage(ChatColor.RED + "Thế giới đào của bạn chưa được tạo. Vui lòng liên hệ quản trị viên!");
-            return false;
+        MineManager mineManager = plugin.getMineManager();
+        Location spawnLocation;
+        if (mineManager.isPlotMode()) {
+            // Ô trong thế giới chung, cấp luôn nếu người chơi chưa có
+            Mine mine = mineManager.allocatePlot(player);
+            spawnLocation = mine.getRegion().getSpawn(mine.getWorld());
+        } else {
+            // Thế giới có thể đã bị unload khi không dùng, nạp lại nếu cần
+            World mineWorld = plugin.getWorldLifecycle().getOrLoad(MineManager.worldNameFor(player));
+            if (mineWorld == null) {
+                player.sendMessage(ChatColor.RED + "Thế giới đào của bạn chưa được tạo. Vui lòng liên hệ quản trị viên!");
+                return false;
+            }
+            spawnLocation = mineManager.getRegion().getSpawn(mineWorld);
         }
 
         // Teleport the player to their mining world
-        Location spawnLocation = new Location(mineWorld, 8, 70, 8);
+        // Sidebar và Haste do MiningSessionManager áp khi đổi thế giới
         player.teleport(spawnLocation);
-        ScoreboardDisplay.show(player);
         player.sendMessage(ChatColor.GREEN + "Chào mừng đến với thế giới đào của bạn!");
         return true;
     }
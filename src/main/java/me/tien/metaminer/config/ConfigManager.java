@@ -5,37 +5,85 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 public class ConfigManager {
     private final JavaPlugin plugin;
     private final Logger logger;
-    private Map<Material, Integer> oreRates = new HashMap<>();
-    private Map<Material, Integer> pointValues = new HashMap<>();
-    private int totalWeight = 0;
+    // Bảng tra cứu cho các đường nóng, thay nguyên khối khi /metaminer reload
+    private volatile ConfigSnapshot snapshot;
+    // Các thiết lập dưới đây định hình thế giới/khu mỏ, chỉ đọc một lần khi bật plugin
+    private boolean virtualStorage = false;
+    private double placementBudgetMillis = 5.0;
+    private int worldPoolSize = 3;
+    private int idleUnloadMinutes = 10;
+    private int maxLoadedMineWorlds = 50;
+    private boolean plotMode = false;
+    private int mineWidth = 16;
+    private int mineHeight = 21;
+    private int mineHeadroom = 6;
+    private int plotSize = 32;
+    private int plotColumns = 100;
+    private boolean lazyReveal = false;
+    private int autoClaimSeconds = 0;
+    private int autosaveSeconds = 60;
+    private String dataStoreType = "yaml";
+    private int offlineCacheSize = 500;
 
     public ConfigManager(JavaPlugin plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        loadConfig();
-    }
-
-    public void loadConfig() {
         plugin.saveDefaultConfig();
         FileConfiguration config = plugin.getConfig();
+        loadSettings(config);
+        snapshot = compile(config);
+    }
 
-        // Load ore rates
-        oreRates.clear();
-        totalWeight = 0;
+    private void loadSettings(FileConfiguration config) {
+        // Kho ảo: vật phẩm đào được cộng vào bộ đếm thay vì rơi ra túi đồ
+        virtualStorage = config.getBoolean("virtual_storage.enabled", false);
+        // Thời gian tối đa mỗi tick dành cho việc đặt block của mọi khu mỏ
+        placementBudgetMillis = config.getDouble("placement.tick_budget_ms", 5.0);
+        // Số thế giới mỏ sinh sẵn chờ người chơi mới (0 = tắt)
+        worldPoolSize = config.getInt("world_pool.size", 3);
+        idleUnloadMinutes = config.getInt("mine_worlds.idle_unload_minutes", 10);
+        maxLoadedMineWorlds = config.getInt("mine_worlds.max_loaded", 50);
+        // world: mỗi người một thế giới; plot: một ô trong thế giới chung
+        plotMode = "plot".equalsIgnoreCase(config.getString("mine_mode", "world"));
+        // Kích thước thân quặng (ngang = dọc) và khoảng trống phía trên
+        mineWidth = Math.max(1, config.getInt("mine.width", 16));
+        mineHeight = Math.max(1, config.getInt("mine.height", 21));
+        mineHeadroom = Math.max(4, config.getInt("mine.headroom", 6));
+        // Ô phải đủ chỗ cho thân quặng cùng vỏ bedrock
+        plotSize = Math.max(mineWidth + 2, config.getInt("plot.size", 32));
+        plotColumns = Math.max(1, config.getInt("plot.columns", 100));
+        // Ghi đá giữ chỗ khi reset, quặng thật được quyết định khi block lộ ra
+        lazyReveal = config.getBoolean("lazy_reveal", false);
+        // Tự động /claim cho người chơi đang ở trong khu mỏ của mình sau mỗi khoảng này (giây), 0 = tắt
+        autoClaimSeconds = Math.max(0, config.getInt("auto_claim.interval_seconds", 0));
+        // Chu kỳ ghi dữ liệu người chơi đã thay đổi xuống đĩa (giây), 0 = chỉ ghi khi thoát/tắt
+        autosaveSeconds = Math.max(0, config.getInt("autosave.interval_seconds", 60));
+        // yaml: mỗi người chơi một file; binary: một file bản ghi cố định kích thước
+        dataStoreType = config.getString("storage.type", "yaml");
+        // Số hồ sơ người chơi offline giữ trong bộ nhớ cho tra cứu (LRU)
+        offlineCacheSize = Math.max(0, config.getInt("storage.offline_cache_size", 500));
+    }
 
+    // Dựng toàn bộ bảng tra cứu vào biến cục bộ rồi mới công bố, không sửa bảng đang dùng
+    private ConfigSnapshot compile(FileConfiguration config) {
+        // Load ore rates
+        Map<Material, Integer> oreRates = new HashMap<>();
         if (config.isConfigurationSection("ores")) {
             for (String key : config.getConfigurationSection("ores").getKeys(false)) {
                 try {
                     Material material = Material.valueOf(key);
                     int weight = config.getInt("ores." + key);
                     oreRates.put(material, weight);
-                    totalWeight += weight;
                     logger.info("Loaded ore rate: " + key + " = " + weight);
                 } catch (IllegalArgumentException e) {
                     logger.warning("Invalid material in config: " + key);
@@ -44,60 +92,155 @@ public class ConfigManager {
         }
 
         // Load point values
-        pointValues.clear();
-
+        int[] points = new int[Material.values().length];
         if (config.isConfigurationSection("points")) {
             for (String key : config.getConfigurationSection("points").getKeys(false)) {
                 try {
                     Material material = Material.valueOf(key);
-                    int points = config.getInt("points." + key);
-                    pointValues.put(material, points);
-                    logger.info("Loaded point value: " + key + " = " + points);
+                    int value = config.getInt("points." + key);
+                    points[material.ordinal()] = value;
+                    logger.info("Loaded point value: " + key + " = " + value);
                 } catch (IllegalArgumentException e) {
                     logger.warning("Invalid material in config: " + key);
                 }
             }
         }
+
         // Load NFT drop chances
-        nftDropChances.clear();
+        Map<String, Integer> nftDropChances = new HashMap<>();
         if (config.isConfigurationSection("nft_drops")) {
             for (String key : config.getConfigurationSection("nft_drops").getKeys(false)) {
                 int chance = config.getInt("nft_drops." + key + ".chance", 0);
                 nftDropChances.put(key, chance);
             }
         }
+        // Sau số lần đào liên tiếp không rơi NFT này thì lần tiếp theo chắc chắn rơi (0 = tắt)
+        int nftPityBreaks = Math.max(0, config.getInt("nft_pity.breaks", 0));
+
+        long[] virtualCapacities = {576, 1152, 1728, 2304};
+        List<Long> capacities = config.getLongList("virtual_storage.capacity");
+        if (!capacities.isEmpty()) {
+            virtualCapacities = capacities.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        // Tự làm mới khi phần quặng còn lại dưới ngưỡng này (%), 0 = tắt
+        int autoRefillPercent = Math.max(0, Math.min(100, config.getInt("auto_refill.threshold_percent", 10)));
 
+        return new ConfigSnapshot(oreRates, points, nftDropChances, nftPityBreaks, virtualCapacities, autoRefillPercent);
     }
 
-    public Material getRandomOre() {
-        if (totalWeight <= 0) return Material.STONE;
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
 
-        int random = (int) (Math.random() * totalWeight);
-        int currentWeight = 0;
+    // Mỗi khu mỏ/lượt fill dùng bộ sinh riêng, truyền seed để tái tạo đúng bố cục
+    public static RandomGenerator newOreRandom(long seed) {
+        return new SplittableRandom(seed);
+    }
 
-        for (Map.Entry<Material, Integer> entry : oreRates.entrySet()) {
-            currentWeight += entry.getValue();
-            if (random < currentWeight) {
-                return entry.getKey();
-            }
-        }
+    public static RandomGenerator newOreRandom() {
+        return new SplittableRandom(ThreadLocalRandom.current().nextLong());
+    }
 
-        return Material.STONE; // Default fallback
+    public OreSampler getOreSampler() {
+        return snapshot.getOreSampler();
     }
     public Map<Material, Integer> getOreRates() {
-        return oreRates;
+        return snapshot.getOreRates();
     }
-    private final Map<String, Integer> nftDropChances = new HashMap<>();
     public Map<String, Integer> getNftDropChances() {
-        return nftDropChances;
+        return snapshot.getNftDropChances();
+    }
+
+    public NftDropTable getNftDropTable() {
+        return snapshot.getNftDropTable();
+    }
+
+    public int getNftPityBreaks() {
+        return snapshot.getNftPityBreaks();
+    }
+
+    public boolean isVirtualStorage() {
+        return virtualStorage;
+    }
+
+    public long getVirtualCapacity(int storageLevel) {
+        return snapshot.getVirtualCapacity(storageLevel);
+    }
+
+    public double getPlacementBudgetMillis() {
+        return placementBudgetMillis;
+    }
+
+    public int getWorldPoolSize() {
+        return worldPoolSize;
+    }
+
+    public int getIdleUnloadMinutes() {
+        return idleUnloadMinutes;
+    }
+
+    public int getMaxLoadedMineWorlds() {
+        return maxLoadedMineWorlds;
+    }
+
+    public int getMineWidth() {
+        return mineWidth;
+    }
+
+    public int getMineHeight() {
+        return mineHeight;
+    }
+
+    public int getMineHeadroom() {
+        return mineHeadroom;
+    }
+
+    public boolean isPlotMode() {
+        return plotMode;
+    }
+
+    public int getPlotSize() {
+        return plotSize;
+    }
+
+    public int getPlotColumns() {
+        return plotColumns;
+    }
+
+    public boolean isLazyReveal() {
+        return lazyReveal;
+    }
+
+    public int getAutoRefillPercent() {
+        return snapshot.getAutoRefillPercent();
+    }
+
+    public int getAutoClaimSeconds() {
+        return autoClaimSeconds;
+    }
+
+    public int getAutosaveSeconds() {
+        return autosaveSeconds;
+    }
+
+    public String getDataStoreType() {
+        return dataStoreType;
+    }
+
+    public int getOfflineCacheSize() {
+        return offlineCacheSize;
     }
 
     public int getPointValue(Material material) {
-        return pointValues.getOrDefault(material, 0);
+        return snapshot.getPointValue(material);
     }
 
-    public void reloadConfig() {
+    // Nạp lại config.yml và thay bản chụp; thiết lập thế giới/khu mỏ cần khởi động lại
+    public ConfigSnapshot reloadConfig() {
         plugin.reloadConfig();
-        loadConfig();
+        ConfigSnapshot reloaded = compile(plugin.getConfig());
+        snapshot = reloaded;
+        return reloaded;
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package me.tien.metaminer.config;
+
+import org.bukkit.Material;
+
+import java.util.Map;
+
+/**
+ * Các bảng tra cứu đã biên dịch từ config.yml. Không bao giờ bị sửa sau khi
+ * tạo; ConfigManager thay cả bản chụp bằng một phép gán khi reload, nên mỗi
+ * lần đọc thấy trọn một phiên bản cấu hình.
+ */
+public final class ConfigSnapshot {
+
+    private final Map<Material, Integer> oreRates;
+    private final OreSampler oreSampler;
+    // Điểm theo ordinal của Material, tra cứu không cần băm
+    private final int[] pointValues;
+    private final Map<String, Integer> nftDropChances;
+    private final NftDropTable nftDropTable;
+    private final int nftPityBreaks;
+    private final long[] virtualCapacities;
+    private final int autoRefillPercent;
+
+    ConfigSnapshot(Map<Material, Integer> oreRates, int[] pointValues, Map<String, Integer> nftDropChances,
+                   int nftPityBreaks, long[] virtualCapacities, int autoRefillPercent) {
+        this.oreRates = Map.copyOf(oreRates);
+        this.oreSampler = OreSampler.of(oreRates);
+        this.pointValues = pointValues;
+        this.nftDropChances = Map.copyOf(nftDropChances);
+        this.nftDropTable = NftDropTable.of(nftDropChances);
+        this.nftPityBreaks = nftPityBreaks;
+        this.virtualCapacities = virtualCapacities;
+        this.autoRefillPercent = autoRefillPercent;
+    }
+
+    public Map<Material, Integer> getOreRates() {
+        return oreRates;
+    }
+
+    public OreSampler getOreSampler() {
+        return oreSampler;
+    }
+
+    public int getPointValue(Material material) {
+        return pointValues[material.ordinal()];
+    }
+
+    public Map<String, Integer> getNftDropChances() {
+        return nftDropChances;
+    }
+
+    public NftDropTable getNftDropTable() {
+        return nftDropTable;
+    }
+
+    public int getNftPityBreaks() {
+        return nftPityBreaks;
+    }
+
+    public long getVirtualCapacity(int storageLevel) {
+        return virtualCapacities[Math.max(0, Math.min(storageLevel, virtualCapacities.length - 1))];
+    }
+
+    public int getAutoRefillPercent() {
+        return autoRefillPercent;
+    }
+}
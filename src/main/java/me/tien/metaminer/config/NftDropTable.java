@@ -0,0 +1,100 @@
+package me.tien.metaminer.config;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+/**
+ * Bảng rơi NFT đã biên dịch: tỷ lệ (%) được cộng dồn thành phân phối tích luỹ,
+ * mỗi lần đào chỉ cần một lần quay và một lần tìm kiếm nhị phân. Nếu tổng tỷ
+ * lệ vượt 100% thì mọi lần quay đều rơi NFT, theo tỷ lệ tương đối.
+ */
+public final class NftDropTable {
+
+    public static final NftDropTable EMPTY = new NftDropTable(new String[0], new double[0]);
+
+    private final String[] names;
+    private final double[] cumulative;
+    private final double total;
+    private final double range;
+
+    private NftDropTable(String[] names, double[] cumulative) {
+        this.names = names;
+        this.cumulative = cumulative;
+        this.total = cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+        this.range = Math.max(100.0, total);
+    }
+
+    public static NftDropTable of(Map<String, Integer> chances) {
+        int n = 0;
+        for (int chance : chances.values()) {
+            if (chance > 0) n++;
+        }
+        if (n == 0) return EMPTY;
+
+        String[] names = new String[n];
+        double[] cumulative = new double[n];
+        double sum = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : chances.entrySet()) {
+            if (entry.getValue() <= 0) continue;
+            sum += entry.getValue();
+            names[i] = entry.getKey();
+            cumulative[i] = sum;
+            i++;
+        }
+        return new NftDropTable(names, cumulative);
+    }
+
+    // Bảng chỉ gồm các NFT có trong available, tỷ lệ của từng NFT giữ nguyên;
+    // phần tỷ lệ của NFT bị bỏ trở thành "không rơi"
+    public NftDropTable retain(Set<String> available) {
+        int n = 0;
+        for (String name : names) {
+            if (available.contains(name)) n++;
+        }
+        if (n == names.length) return this;
+        if (n == 0) return EMPTY;
+
+        String[] kept = new String[n];
+        double[] keptCumulative = new double[n];
+        double sum = 0;
+        int j = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (!available.contains(names[i])) continue;
+            sum += cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+            kept[j] = names[i];
+            keptCumulative[j] = sum;
+            j++;
+        }
+        return new NftDropTable(kept, keptCumulative);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    // Tên NFT rơi ra, null nếu lần đào này không rơi gì
+    public String roll(RandomGenerator random) {
+        return pick(random.nextDouble() * range);
+    }
+
+    // Luôn rơi một NFT, chọn theo tỷ lệ tương đối (dùng cho bảo hiểm/pity)
+    public String rollGuaranteed(RandomGenerator random) {
+        if (isEmpty()) return null;
+        return pick(random.nextDouble() * total);
+    }
+
+    private String pick(double roll) {
+        if (roll >= total) return null;
+        int index = Arrays.binarySearch(cumulative, roll);
+        // Không khớp chính xác: điểm chèn là mục đầu tiên có cận trên > roll
+        index = index < 0 ? -index - 1 : index + 1;
+        return names[Math.min(index, names.length - 1)];
+    }
+}
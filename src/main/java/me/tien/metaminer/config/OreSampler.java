@@ -0,0 +1,93 @@
+package me.tien.metaminer.config;
+
+import org.bukkit.Material;
+
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Bảng alias (Vose) bất biến cho tỷ lệ quặng: mỗi lần lấy mẫu là O(1),
+ * không phụ thuộc số loại quặng. Bộ sinh số ngẫu nhiên do nơi gọi cung cấp.
+ */
+public final class OreSampler {
+
+    public static final OreSampler EMPTY = new OreSampler(new Material[]{Material.STONE}, new double[]{1.0}, new int[]{0});
+
+    private final Material[] materials;
+    private final double[] probability;
+    private final int[] alias;
+
+    private OreSampler(Material[] materials, double[] probability, int[] alias) {
+        this.materials = materials;
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    public static OreSampler of(Map<Material, Integer> weights) {
+        int n = 0;
+        long total = 0;
+        for (int weight : weights.values()) {
+            if (weight > 0) {
+                n++;
+                total += weight;
+            }
+        }
+        if (n == 0) return EMPTY;
+
+        Material[] materials = new Material[n];
+        double[] scaled = new double[n];
+        int i = 0;
+        for (Map.Entry<Material, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() <= 0) continue;
+            materials[i] = entry.getKey();
+            scaled[i] = (double) entry.getValue() * n / total;
+            i++;
+        }
+
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (i = 0; i < n; i++) {
+            if (scaled[i] < 1.0) small[smallSize++] = i;
+            else large[largeSize++] = i;
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) small[smallSize++] = more;
+            else large[largeSize++] = more;
+        }
+        // Phần còn lại (do sai số dấu phẩy động) luôn chọn chính nó
+        while (largeSize > 0) probability[large[--largeSize]] = 1.0;
+        while (smallSize > 0) probability[small[--smallSize]] = 1.0;
+
+        return new OreSampler(materials, probability, alias);
+    }
+
+    public Material sample(RandomGenerator random) {
+        int column = random.nextInt(materials.length);
+        return random.nextDouble() < probability[column] ? materials[column] : materials[alias[column]];
+    }
+
+    // Lấy mẫu tất định từ giá trị băm 64 bit: cùng hash luôn cho cùng loại quặng
+    public Material sample(long hash) {
+        long bits = mix(hash);
+        int column = (int) (((bits >>> 32) * materials.length) >>> 32);
+        double u = (bits & 0xFFFFFFFFL) * 0x1.0p-32;
+        return u < probability[column] ? materials[column] : materials[alias[column]];
+    }
+
+    // Bước trộn cuối của SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,306 @@
+package me.tien.metaminer.data;
+
+import org.bukkit.Material;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Mọi người chơi trong một file nhị phân, mỗi người một cặp bản ghi cố định
+ * kích thước. Chỉ mục UUID → vị trí được dựng khi mở file, sau đó đọc/ghi một
+ * hồ sơ là một lần đọc/ghi theo vị trí (FileChannel), không phụ thuộc số
+ * người chơi. Hai bản ghi của cặp được ghi luân phiên, kèm số thứ tự và CRC:
+ * nếu server sập giữa chừng thì bản còn lại vẫn nguyên vẹn. Khi kho ảo của
+ * một người chơi có nhiều loại hơn số ô của bản ghi, cả file được chép sang
+ * bản ghi lớn hơn (ghi file tạm rồi đổi tên) thay vì bỏ bớt dữ liệu.
+ */
+public class BinaryPlayerDataStore implements PlayerDataStore {
+
+    private static final int MAGIC = 0x4D4D5044; // "MMPD"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private static final Upgrade[] UPGRADES = Upgrade.values();
+    // Số ô kho ảo của file mới; file cũ ghi 0 ở header nghĩa là 8 ô
+    private static final int DEFAULT_STORAGE_SLOTS = 8;
+    private static final int NAME_BYTES = 40;
+
+    private static final class Slot {
+        private final int pair;
+        // Bản ghi (0/1) chứa dữ liệu mới nhất và số thứ tự của nó
+        private volatile int current = 1;
+        private volatile long sequence;
+
+        private Slot(int pair) {
+            this.pair = pair;
+        }
+    }
+
+    private final Path file;
+    private final Logger logger;
+    private final Map<UUID, Slot> index = new ConcurrentHashMap<>();
+    // Đọc/ghi một hồ sơ giữ khoá đọc; chép sang bản ghi lớn hơn giữ khoá ghi
+    private final ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private int storageSlots = DEFAULT_STORAGE_SLOTS;
+    private int recordSize = recordSize(DEFAULT_STORAGE_SLOTS);
+    private int pairCount;
+
+    public BinaryPlayerDataStore(Path file, Logger logger) throws IOException {
+        this.file = file;
+        this.logger = logger;
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeFully(channel, header(storageSlots, recordSize), 0);
+        } else {
+            readIndex();
+        }
+    }
+
+    // uuid, số thứ tự, điểm, nâng cấp, kho ảo (tên + số lượng), CRC
+    private static int recordSize(int storageSlots) {
+        return 16 + 8 + 8 + UPGRADES.length * 4 + storageSlots * (NAME_BYTES + 8) + 4;
+    }
+
+    private static ByteBuffer header(int storageSlots, int recordSize) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(recordSize).putInt(storageSlots).flip();
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer header = readFully(ByteBuffer.allocate(HEADER_SIZE), 0);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("File dữ liệu không đúng định dạng MetaMiner");
+        }
+        int size = header.getInt();
+        int slots = header.getInt();
+        storageSlots = slots == 0 ? DEFAULT_STORAGE_SLOTS : slots;
+        recordSize = recordSize(storageSlots);
+        if (size != recordSize) {
+            throw new IOException("File dữ liệu không đúng định dạng MetaMiner");
+        }
+
+        // Cặp cuối có thể mới ghi một nửa; phần thiếu được đọc là bản ghi trống
+        long pairSize = 2L * recordSize;
+        pairCount = (int) ((channel.size() - HEADER_SIZE + pairSize - 1) / pairSize);
+        ByteBuffer pair = ByteBuffer.allocate(2 * recordSize);
+        for (int p = 0; p < pairCount; p++) {
+            readFully(pair.clear(), pairOffset(p));
+            int latest = latest(pair);
+            if (latest < 0) continue;
+
+            ByteBuffer record = pair.slice(latest * recordSize, recordSize);
+            Slot slot = new Slot(p);
+            slot.current = latest;
+            slot.sequence = record.getLong(16);
+            index.put(new UUID(record.getLong(0), record.getLong(8)), slot);
+        }
+    }
+
+    @Override
+    public PlayerRecord load(UUID uuid) throws IOException {
+        Slot slot = index.get(uuid);
+        if (slot == null) return null;
+
+        resizeLock.readLock().lock();
+        try {
+            return readRecord(uuid, slot);
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    private PlayerRecord readRecord(UUID uuid, Slot slot) throws IOException {
+        ByteBuffer pair = readFully(ByteBuffer.allocate(2 * recordSize), pairOffset(slot.pair));
+        int latest = latest(pair);
+        if (latest < 0) throw new IOException("Bản ghi của " + uuid + " bị hỏng");
+        return decode(pair.slice(latest * recordSize, recordSize));
+    }
+
+    @Override
+    public synchronized void save(UUID uuid, PlayerRecord record) throws IOException {
+        if (record.getStorage().size() > storageSlots) {
+            grow(record.getStorage().size());
+        }
+
+        resizeLock.readLock().lock();
+        try {
+            Slot slot = index.get(uuid);
+            if (slot == null) {
+                slot = new Slot(pairCount++);
+                index.put(uuid, slot);
+            }
+
+            int target = 1 - slot.current;
+            long sequence = slot.sequence + 1;
+            writeFully(channel, encode(uuid, sequence, record), pairOffset(slot.pair) + (long) target * recordSize);
+            slot.current = target;
+            slot.sequence = sequence;
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    // Chép mọi hồ sơ sang file mới có đủ ô kho ảo (gấp đôi cho tới khi đủ), giữ nguyên vị trí
+    // từng cặp; server sập giữa chừng thì file cũ vẫn nguyên vì chỉ đổi tên khi đã chép xong
+    private void grow(int needed) throws IOException {
+        resizeLock.writeLock().lock();
+        try {
+            int slots = storageSlots;
+            while (slots < needed) slots *= 2;
+            int size = recordSize(slots);
+            logger.info("Mở rộng bản ghi dữ liệu người chơi lên " + slots + " loại vật phẩm kho ảo");
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                writeFully(out, header(slots, size), 0);
+                for (Map.Entry<UUID, Slot> entry : index.entrySet()) {
+                    Slot slot = entry.getValue();
+                    PlayerRecord record;
+                    try {
+                        record = readRecord(entry.getKey(), slot);
+                    } catch (IOException e) {
+                        logger.warning(e.getMessage() + ", bỏ qua khi mở rộng file");
+                        continue;
+                    }
+                    writeFully(out, encode(entry.getKey(), slot.sequence, record, slots, size),
+                            HEADER_SIZE + (long) slot.pair * 2 * size);
+                }
+                out.force(true);
+            }
+
+            channel.close();
+            try {
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                // Đổi tên thất bại thì file cũ vẫn dùng được với kích thước cũ
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            storageSlots = slots;
+            recordSize = size;
+            // Bản mới nhất của mỗi cặp giờ nằm ở bản ghi 0
+            for (Slot slot : index.values()) {
+                slot.current = 0;
+            }
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    private long pairOffset(int pair) {
+        return HEADER_SIZE + (long) pair * 2 * recordSize;
+    }
+
+    // Bản ghi hợp lệ có số thứ tự lớn hơn trong cặp, -1 nếu cả hai đều trống/hỏng
+    private int latest(ByteBuffer pair) {
+        int latest = -1;
+        long best = 0;
+        for (int k = 0; k < 2; k++) {
+            ByteBuffer record = pair.slice(k * recordSize, recordSize);
+            long sequence = record.getLong(16);
+            if (sequence > best && isValid(record)) {
+                best = sequence;
+                latest = k;
+            }
+        }
+        return latest;
+    }
+
+    private boolean isValid(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(0, recordSize - 4));
+        return (int) crc.getValue() == record.getInt(recordSize - 4);
+    }
+
+    private ByteBuffer encode(UUID uuid, long sequence, PlayerRecord record) {
+        return encode(uuid, sequence, record, storageSlots, recordSize);
+    }
+
+    // Nơi gọi bảo đảm kho ảo không nhiều loại hơn slots (save() mở rộng file trước)
+    private ByteBuffer encode(UUID uuid, long sequence, PlayerRecord record, int slots, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        buffer.putLong(sequence);
+        buffer.putLong(record.getPoints());
+        for (Upgrade upgrade : UPGRADES) {
+            buffer.putInt(record.getLevel(upgrade));
+        }
+
+        // Tên Material dài nhất vẫn ngắn hơn NAME_BYTES
+        for (Map.Entry<Material, Long> entry : record.getStorage().entrySet()) {
+            byte[] name = entry.getKey().name().getBytes(StandardCharsets.US_ASCII);
+            buffer.put(name).position(buffer.position() + NAME_BYTES - name.length);
+            buffer.putLong(entry.getValue());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, size - 4);
+        buffer.putInt(size - 4, (int) crc.getValue());
+        return buffer.clear();
+    }
+
+    private PlayerRecord decode(ByteBuffer record) {
+        record.position(24);
+        long points = record.getLong();
+        int[] levels = new int[UPGRADES.length];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = record.getInt();
+        }
+
+        Map<Material, Long> storage = new EnumMap<>(Material.class);
+        byte[] name = new byte[NAME_BYTES];
+        for (int i = 0; i < storageSlots; i++) {
+            record.get(name);
+            long amount = record.getLong();
+            int length = 0;
+            while (length < NAME_BYTES && name[length] != 0) length++;
+            if (length == 0 || amount <= 0) continue;
+
+            Material material = Material.matchMaterial(new String(name, 0, length, StandardCharsets.US_ASCII));
+            if (material != null) storage.merge(material, amount, Long::sum);
+        }
+        return new PlayerRecord(points, levels, storage);
+    }
+
+    // Phần nằm ngoài cuối file được coi là byte 0 (bản ghi trống)
+    private ByteBuffer readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        Arrays.fill(buffer.array(), buffer.position(), buffer.capacity(), (byte) 0);
+        return buffer.clear();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -1,86 +1,154 @@
 package me.tien.metaminer.data;
 
 import org.bukkit.Bukkit;
-import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
 public class PlayerDataManager {
 
-    private static final Map<UUID, Integer> playerPoints = new HashMap<>();
-    private static final Map<UUID, Map<String, Integer>> playerUpgrades = new HashMap<>();
     private static final File dataFolder = new File(Bukkit.getPluginManager().getPlugin("MetaMiner").getDataFolder(), "data");
-    private static final Map<UUID, Integer> storageLevels = new HashMap<>();
+    // PlayerProfile của người chơi đang online; đọc được từ mọi luồng, gỡ khi thoát
+    private static final Map<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+    // Hồ sơ (chỉ đọc) của người chơi offline, giữ tối đa offlineCacheSize mục theo LRU
+    private static int offlineCacheSize = 500;
+    private static final Map<UUID, PlayerProfile> offlineCache = Collections.synchronizedMap(
+            new LinkedHashMap<UUID, PlayerProfile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, PlayerProfile> eldest) {
+                    return size() > offlineCacheSize;
+                }
+            });
+    // Dữ liệu đọc sẵn ở AsyncPlayerPreLoginEvent, chờ PlayerJoinEvent lấy ra (rỗng = người chơi mới)
+    private static final Map<UUID, Optional<PlayerRecord>> preloaded = new ConcurrentHashMap<>();
+    private static PlayerDataWriter writer;
+
+    // autosaveSeconds: chu kỳ ghi dữ liệu đã thay đổi, 0 = chỉ ghi khi thoát và khi tắt
+    public static void start(Plugin plugin, String storeType, int autosaveSeconds, int offlineCacheSize) throws IOException {
+        PlayerDataManager.offlineCacheSize = offlineCacheSize;
+        writer = new PlayerDataWriter(createStore(storeType, plugin.getLogger()), plugin.getLogger());
+        if (autosaveSeconds > 0) {
+            long period = autosaveSeconds * 20L;
+            Bukkit.getScheduler().runTaskTimer(plugin, PlayerDataManager::flushDirty, period, period);
+        }
+    }
+
+    // yaml: mỗi người chơi một file data/<uuid>.yml; binary: một file data/players.dat
+    private static PlayerDataStore createStore(String type, Logger logger) throws IOException {
+        if ("binary".equalsIgnoreCase(type)) {
+            return new BinaryPlayerDataStore(new File(dataFolder, "players.dat").toPath(), logger);
+        }
+        return new YamlPlayerDataStore(dataFolder.toPath());
+    }
+
+    public static void shutdown() {
+        if (writer == null) return;
+        flushDirty();
+        writer.shutdown();
+    }
+
+    // Gọi từ luồng async trước khi người chơi vào server
+    public static void preload(UUID uuid) {
+        preloaded.put(uuid, Optional.ofNullable(writer.read(uuid)));
+    }
+
+    // Đăng nhập bị từ chối sau pre-login (whitelist, ban, server đầy): bỏ dữ liệu đã đọc sẵn
+    public static void discardPreload(UUID uuid) {
+        preloaded.remove(uuid);
+    }
 
     public static void load(Player player) {
         UUID uuid = player.getUniqueId();
-        File file = new File(dataFolder, uuid + ".yml");
+        Optional<PlayerRecord> loaded = preloaded.remove(uuid);
+        // Người chơi đã online trước khi plugin bật (vd. /reload) không qua pre-login
+        PlayerRecord record = loaded != null ? loaded.orElse(null) : writer.read(uuid);
 
-        if (!file.exists()) {
-            save(player); // Tạo file nếu chưa có
-            return;
+        PlayerProfile profile = new PlayerProfile(uuid);
+        if (record != null) {
+            profile.load(record);
+        } else {
+            profile.markDirty(); // Tạo dữ liệu nếu chưa có
         }
+        offlineCache.remove(uuid);
+        profiles.put(uuid, profile);
+    }
 
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        playerPoints.put(uuid, config.getInt("points", 0));
-        storageLevels.putIfAbsent(uuid, 0); // Default level is 0
-        Map<String, Integer> upgrades = new HashMap<>();
-        if (config.isConfigurationSection("upgrades")) {
-            for (String key : config.getConfigurationSection("upgrades").getKeys(false)) {
-                upgrades.put(key, config.getInt("upgrades." + key, 0));
-            }
+    // Hồ sơ của người chơi đang online. Chưa nạp (hoặc đã thoát) thì ném lỗi thay vì trả một
+    // hồ sơ tách rời: thay đổi trên đó (điểm từ /claim, nâng cấp) sẽ mất mà không ai biết
+    public static PlayerProfile getProfile(Player player) {
+        return getProfile(player.getUniqueId());
+    }
+
+    public static PlayerProfile getProfile(UUID uuid) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            throw new IllegalStateException("Hồ sơ của người chơi " + uuid + " chưa được nạp");
         }
-        playerUpgrades.put(uuid, upgrades);
+        return profile;
     }
 
-    public static void save(Player player) {
-        UUID uuid = player.getUniqueId();
-        File file = new File(dataFolder, uuid + ".yml");
-        FileConfiguration config = new YamlConfiguration();
+    // null trong khoảng từ lúc vào server đến khi hồ sơ nạp xong (hoặc sau khi đã thoát);
+    // dùng cho các chỗ chạy định kỳ/hiển thị có thể bỏ qua người chơi đó
+    public static PlayerProfile findProfile(UUID uuid) {
+        return profiles.get(uuid);
+    }
 
-        config.set("points", getPoints(uuid));
+    // Tra cứu cả người chơi offline (lệnh admin, bảng xếp hạng); hồ sơ offline chỉ để đọc.
+    // Chưa có trong cache thì đọc từ kho ở luồng nền; null nếu người chơi chưa từng có dữ liệu
+    public static CompletableFuture<PlayerProfile> lookup(UUID uuid) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) profile = offlineCache.get(uuid);
+        if (profile != null) return CompletableFuture.completedFuture(profile);
 
-        Map<String, Integer> upgrades = playerUpgrades.getOrDefault(uuid, new HashMap<>());
-        for (Map.Entry<String, Integer> entry : upgrades.entrySet()) {
-            config.set("upgrades." + entry.getKey(), entry.getValue());
-        }
+        return CompletableFuture.supplyAsync(() -> {
+            PlayerRecord record = writer.read(uuid);
+            if (record == null) return null;
 
-        try {
-            config.save(file);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+            PlayerProfile loaded = new PlayerProfile(uuid);
+            loaded.load(record);
+            // Người chơi có thể vừa vào server trong lúc đọc
+            PlayerProfile online = profiles.get(uuid);
+            if (online != null) return online;
+            offlineCache.put(uuid, loaded);
+            return loaded;
+        });
     }
 
-    public static int getPoints(UUID uuid) {
-        return playerPoints.getOrDefault(uuid, 0);
+    public static int getOnlineCount() {
+        return profiles.size();
     }
 
-    public static void addPoints(UUID uuid, int amount) {
-        playerPoints.put(uuid, getPoints(uuid) + amount);
+    public static int getOfflineCacheCount() {
+        return offlineCache.size();
     }
 
-    public static void removePoints(UUID uuid, int amount) {
-        playerPoints.put(uuid, Math.max(0, getPoints(uuid) - amount));
+    // Chụp dữ liệu trên main thread, việc ghi do PlayerDataWriter làm ở luồng nền
+    public static void save(Player player) {
+        if (writer == null) return;
+        PlayerProfile profile = profiles.get(player.getUniqueId());
+        if (profile != null) writer.submit(profile.getUuid(), profile.snapshot());
     }
 
-    public static int getUpgrade(UUID playerId, String type) {
-        if ("storage".equalsIgnoreCase(type)) {
-            return storageLevels.getOrDefault(playerId, 0); // Default level is 0
-        }
-        return 0;
+    // Lưu rồi gỡ hồ sơ khi người chơi thoát; hồ sơ chuyển sang cache offline có giới hạn
+    public static void unload(Player player) {
+        UUID uuid = player.getUniqueId();
+        preloaded.remove(uuid);
+        PlayerProfile profile = profiles.remove(uuid);
+        if (profile == null) return;
+
+        if (writer != null) writer.submit(uuid, profile.snapshot());
+        offlineCache.put(uuid, profile);
     }
-    public static void setUpgrade(UUID playerId, String type, int level) {
-        if ("storage".equalsIgnoreCase(type)) {
-            storageLevels.put(playerId, level);
+
+    private static void flushDirty() {
+        for (PlayerProfile profile : profiles.values()) {
+            if (profile.isDirty()) writer.submit(profile.getUuid(), profile.snapshot());
         }
     }
-    public static void incrementUpgrade(UUID uuid, String type) {
-        Map<String, Integer> upgrades = playerUpgrades.computeIfAbsent(uuid, k -> new HashMap<>());
-        upgrades.put(type, upgrades.getOrDefault(type, 0) + 1);
-    }
 }
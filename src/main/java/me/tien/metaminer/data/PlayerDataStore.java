@@ -0,0 +1,18 @@
+package me.tien.metaminer.data;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Nơi lưu dữ liệu người chơi. Được gọi từ luồng ghi và luồng async pre-login,
+ * không bao giờ từ main thread; cài đặt phải cho phép đọc và ghi đồng thời.
+ */
+public interface PlayerDataStore {
+
+    // null nếu người chơi chưa có dữ liệu
+    PlayerRecord load(UUID uuid) throws IOException;
+
+    void save(UUID uuid, PlayerRecord record) throws IOException;
+
+    void close() throws IOException;
+}
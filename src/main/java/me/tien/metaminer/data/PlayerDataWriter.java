@@ -0,0 +1,76 @@
+package me.tien.metaminer.data;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Luồng nền ghi dữ liệu người chơi vào PlayerDataStore. Main thread chỉ trao
+ * bản chụp PlayerRecord; nhiều bản chụp của cùng người chơi trước khi kịp ghi
+ * được gộp lại, chỉ bản mới nhất được ghi.
+ */
+public class PlayerDataWriter {
+
+    private final PlayerDataStore store;
+    private final Logger logger;
+    // Bản chụp mới nhất chưa ghi xong của từng người chơi
+    private final Map<UUID, PlayerRecord> pending = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "MetaMiner-DataWriter"));
+
+    public PlayerDataWriter(PlayerDataStore store, Logger logger) {
+        this.store = store;
+        this.logger = logger;
+    }
+
+    public void submit(UUID uuid, PlayerRecord record) {
+        // Đã có lượt ghi đang chờ cho người chơi này thì nó sẽ lấy bản mới
+        if (pending.put(uuid, record) == null) executor.execute(() -> write(uuid));
+    }
+
+    private void write(UUID uuid) {
+        PlayerRecord record;
+        do {
+            record = pending.get(uuid);
+            if (record == null) return;
+            try {
+                store.save(uuid, record);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Không thể lưu dữ liệu người chơi " + uuid, e);
+            }
+            // Bản chụp bị thay trong lúc ghi: ghi tiếp bản mới thay vì bỏ sót
+        } while (!pending.remove(uuid, record));
+    }
+
+    // Đọc dữ liệu (gọi ngoài main thread); bản chưa kịp ghi được ưu tiên hơn dữ liệu đã lưu
+    public PlayerRecord read(UUID uuid) {
+        PlayerRecord record = pending.get(uuid);
+        if (record != null) return record;
+        try {
+            return store.load(uuid);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Không thể đọc dữ liệu người chơi " + uuid, e);
+            return null;
+        }
+    }
+
+    // Chờ mọi lượt ghi đang xếp hàng hoàn tất rồi đóng kho (khi tắt plugin)
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Hết thời gian chờ lưu dữ liệu người chơi, còn " + pending.size() + " hồ sơ chưa ghi");
+            }
+            store.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Không thể đóng kho dữ liệu người chơi", e);
+        }
+    }
+}
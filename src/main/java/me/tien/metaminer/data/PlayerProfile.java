@@ -0,0 +1,77 @@
+package me.tien.metaminer.data;
+
+import java.util.UUID;
+
+/**
+ * Toàn bộ trạng thái của một người chơi: điểm, cấp nâng cấp (mảng theo
+ * Upgrade) và kho ảo. Chỉ main thread sửa; luồng async đọc được điểm và cấp
+ * độ trực tiếp (giá trị có thể trễ một chút nhưng không bao giờ bị xé).
+ */
+public final class PlayerProfile {
+
+    private final UUID uuid;
+    private volatile long points;
+    private final int[] levels = new int[Upgrade.values().length];
+    private final VirtualStorage virtualStorage = new VirtualStorage();
+    // Có thay đổi chưa được chụp để lưu
+    private volatile boolean dirty;
+
+    public PlayerProfile(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public long getPoints() {
+        return points;
+    }
+
+    public void addPoints(long amount) {
+        points += amount;
+        dirty = true;
+    }
+
+    // false nếu không đủ điểm, khi đó không trừ gì
+    public boolean takePoints(long amount) {
+        if (points < amount) return false;
+        points -= amount;
+        dirty = true;
+        return true;
+    }
+
+    public int getLevel(Upgrade upgrade) {
+        return levels[upgrade.ordinal()];
+    }
+
+    public void setLevel(Upgrade upgrade, int level) {
+        levels[upgrade.ordinal()] = level;
+        dirty = true;
+    }
+
+    public VirtualStorage getVirtualStorage() {
+        return virtualStorage;
+    }
+
+    // Gọi sau khi sửa kho ảo, các thay đổi khác tự đánh dấu
+    public void markDirty() {
+        dirty = true;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    PlayerRecord snapshot() {
+        dirty = false;
+        return new PlayerRecord(points, levels.clone(), virtualStorage.snapshot());
+    }
+
+    void load(PlayerRecord record) {
+        points = record.getPoints();
+        int[] stored = record.getLevels();
+        System.arraycopy(stored, 0, levels, 0, Math.min(stored.length, levels.length));
+        virtualStorage.load(record.getStorage());
+    }
+}
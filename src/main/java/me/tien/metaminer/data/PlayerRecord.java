@@ -0,0 +1,41 @@
+package me.tien.metaminer.data;
+
+import org.bukkit.Material;
+
+import java.util.Map;
+
+/**
+ * Bản chụp bất biến dữ liệu lưu trữ của một người chơi, chụp trên main thread
+ * rồi trao cho luồng ghi; không phụ thuộc định dạng của PlayerDataStore.
+ */
+public final class PlayerRecord {
+
+    private final long points;
+    // Cấp độ theo ordinal của Upgrade
+    private final int[] levels;
+    // Chỉ các loại vật phẩm có số lượng > 0 trong kho ảo
+    private final Map<Material, Long> storage;
+
+    public PlayerRecord(long points, int[] levels, Map<Material, Long> storage) {
+        this.points = points;
+        this.levels = levels.clone();
+        this.storage = Map.copyOf(storage);
+    }
+
+    public long getPoints() {
+        return points;
+    }
+
+    public int getLevel(Upgrade upgrade) {
+        return upgrade.ordinal() < levels.length ? levels[upgrade.ordinal()] : 0;
+    }
+
+    // Bản sao, nơi gọi được tự do sửa
+    public int[] getLevels() {
+        return levels.clone();
+    }
+
+    public Map<Material, Long> getStorage() {
+        return storage;
+    }
+}
@@ -0,0 +1,31 @@
+package me.tien.metaminer.data;
+
+/**
+ * Các loại nâng cấp mua trong UpgradeGUI. Ordinal là chỉ số trong mảng cấp
+ * độ của PlayerProfile; key là tên lưu trong file dữ liệu.
+ */
+public enum Upgrade {
+    SPEED("speed"),
+    VALUE("value"),
+    STORAGE("storage");
+
+    private static final Upgrade[] VALUES = values();
+
+    private final String key;
+
+    Upgrade(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // null nếu không phải nâng cấp đã biết
+    public static Upgrade fromKey(String key) {
+        for (Upgrade upgrade : VALUES) {
+            if (upgrade.key.equalsIgnoreCase(key)) return upgrade;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package me.tien.metaminer.data;
+
+import org.bukkit.Material;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Kho ảo của một người chơi: số lượng vật phẩm đã đào theo ordinal của
+ * Material, không chiếm ô túi đồ. Sức chứa do nơi gọi truyền vào theo cấp Storage.
+ */
+public class VirtualStorage {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final long[] counts = new long[MATERIALS.length];
+    private long total;
+
+    // Trả về số lượng thực sự được nhận (phần vượt sức chứa bị từ chối)
+    public long add(Material material, long amount, long capacity) {
+        long accepted = Math.max(0, Math.min(amount, capacity - total));
+        counts[material.ordinal()] += accepted;
+        total += accepted;
+        return accepted;
+    }
+
+    public long get(Material material) {
+        return counts[material.ordinal()];
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isFull(long capacity) {
+        return total >= capacity;
+    }
+
+    // Đổi các vật phẩm có giá trị thành điểm; vật phẩm không có điểm (vd. điểm bị gỡ khi
+    // reload cấu hình) được giữ lại trong kho, giống /claim ở chế độ túi đồ
+    public long claim(ToLongFunction<Material> pointsPerItem) {
+        long points = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            long value = pointsPerItem.applyAsLong(MATERIALS[i]);
+            if (value <= 0) continue;
+            points += value * counts[i];
+            total -= counts[i];
+            counts[i] = 0;
+        }
+        return points;
+    }
+
+    void load(Map<Material, Long> amounts) {
+        for (Map.Entry<Material, Long> entry : amounts.entrySet()) {
+            counts[entry.getKey().ordinal()] += entry.getValue();
+            total += entry.getValue();
+        }
+    }
+
+    // Các loại có số lượng > 0, dùng cho bản chụp lưu trữ
+    Map<Material, Long> snapshot() {
+        Map<Material, Long> amounts = new EnumMap<>(Material.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) amounts.put(MATERIALS[i], counts[i]);
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,88 @@
+package me.tien.metaminer.data;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Mỗi người chơi một file data/&lt;uuid&gt;.yml. Mỗi lần lưu ghi file tạm rồi
+ * đổi tên, nên file trên đĩa luôn là một bản đầy đủ.
+ */
+public class YamlPlayerDataStore implements PlayerDataStore {
+
+    private final Path folder;
+
+    public YamlPlayerDataStore(Path folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public PlayerRecord load(UUID uuid) throws IOException {
+        Path file = folder.resolve(uuid + ".yml");
+        if (!Files.exists(file)) return null;
+
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("File dữ liệu hỏng: " + file, e);
+        }
+
+        int[] levels = new int[Upgrade.values().length];
+        ConfigurationSection upgradeSection = config.getConfigurationSection("upgrades");
+        if (upgradeSection != null) {
+            for (String key : upgradeSection.getKeys(false)) {
+                Upgrade upgrade = Upgrade.fromKey(key);
+                if (upgrade != null) levels[upgrade.ordinal()] = upgradeSection.getInt(key, 0);
+            }
+        }
+
+        Map<Material, Long> storage = new EnumMap<>(Material.class);
+        ConfigurationSection storageSection = config.getConfigurationSection("virtual_storage");
+        if (storageSection != null) {
+            for (String key : storageSection.getKeys(false)) {
+                Material material = Material.matchMaterial(key);
+                long amount = storageSection.getLong(key);
+                if (material != null && amount > 0) storage.merge(material, amount, Long::sum);
+            }
+        }
+        return new PlayerRecord(config.getLong("points", 0), levels, storage);
+    }
+
+    @Override
+    public void save(UUID uuid, PlayerRecord record) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("points", record.getPoints());
+        for (Upgrade upgrade : Upgrade.values()) {
+            config.set("upgrades." + upgrade.getKey(), record.getLevel(upgrade));
+        }
+        for (Map.Entry<Material, Long> entry : record.getStorage().entrySet()) {
+            config.set("virtual_storage." + entry.getKey().name(), entry.getValue());
+        }
+
+        Path file = folder.resolve(uuid + ".yml");
+        Path temp = folder.resolve(uuid + ".yml.tmp");
+        Files.createDirectories(folder);
+        Files.writeString(temp, config.saveToString(), StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -1,8 +1,9 @@
 package me.tien.metaminer.gui;
 
-import me.tien.metaminer.listeners.InventoryManager;
-import me.tien.metaminer.util.ScoreboardDisplay;
+import me.tien.metaminer.MetaMiner;
 import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 import org.bukkit.event.*;
@@ -14,13 +15,19 @@ import java.util.*;
 
 public class UpgradeGUI implements Listener {
 
+    private final MetaMiner plugin;
+
+    public UpgradeGUI(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
     public static void openUpgradeMenu(Player p) {
         Inventory inv = Bukkit.createInventory(null, 27, ChatColor.GOLD + "Nâng cấp NFT đào");
 
-        UUID uuid = p.getUniqueId();
-        int speedLevel = PlayerDataManager.getUpgrade(uuid, "speed");
-        int valueLevel = PlayerDataManager.getUpgrade(uuid, "value");
-        int storageLevel = PlayerDataManager.getUpgrade(uuid, "storage");
+        PlayerProfile profile = PlayerDataManager.getProfile(p);
+        int speedLevel = profile.getLevel(Upgrade.SPEED);
+        int valueLevel = profile.getLevel(Upgrade.VALUE);
+        int storageLevel = profile.getLevel(Upgrade.STORAGE);
 
         // Calculate scaled costs based on current levels
         int speedCost = 50 * (speedLevel + 1);
@@ -36,7 +43,7 @@ public class UpgradeGUI implements Listener {
         ItemMeta infoMeta = infoItem.getItemMeta();
         infoMeta.setDisplayName(ChatColor.YELLOW + "Thông tin");
         infoMeta.setLore(Arrays.asList(
-                ChatColor.GRAY + "Điểm hiện tại: " + PlayerDataManager.getPoints(uuid),
+                ChatColor.GRAY + "Điểm hiện tại: " + profile.getPoints(),
                 ChatColor.GRAY + "Speed: Tăng tốc độ đào",
                 ChatColor.GRAY + "Value: Tăng giá trị khi đào",
                 ChatColor.GRAY + "Storage: Mở khóa hàng trong túi đồ"
@@ -100,19 +107,19 @@ public class UpgradeGUI implements Listener {
         e.setCancelled(true);
         int slot = e.getSlot();
 
-        String type = null;
-        int basePrice = 0;
+        Upgrade upgrade;
+        int basePrice;
 
-        if (slot == 11) { type = "speed"; basePrice = 50; }
-        else if (slot == 13) { type = "value"; basePrice = 75; }
-        else if (slot == 15) { type = "storage"; basePrice = 100; }
+        if (slot == 11) { upgrade = Upgrade.SPEED; basePrice = 50; }
+        else if (slot == 13) { upgrade = Upgrade.VALUE; basePrice = 75; }
+        else if (slot == 15) { upgrade = Upgrade.STORAGE; basePrice = 100; }
         else return;
 
-        UUID uuid = p.getUniqueId();
-        int currentLevel = PlayerDataManager.getUpgrade(uuid, type);
+        PlayerProfile profile = PlayerDataManager.getProfile(p);
+        int currentLevel = profile.getLevel(upgrade);
 
         // Maximum storage level check
-        if (type.equals("storage") && currentLevel >= 3) {
+        if (upgrade == Upgrade.STORAGE && currentLevel >= 3) {
             p.sendMessage(ChatColor.RED + "Đã đạt cấp tối đa!");
             p.playSound(p.getLocation(), Sound.BLOCK_NOTE_BLOCK_BASS, 1, 0.5f);
             return;
@@ -121,23 +128,19 @@ public class UpgradeGUI implements Listener {
         // Calculate actual cost based on current level
         int actualCost = basePrice * (currentLevel + 1);
 
-        if (PlayerDataManager.getPoints(uuid) >= actualCost) {
-            PlayerDataManager.removePoints(uuid, actualCost);
-            PlayerDataManager.incrementUpgrade(uuid, type);
-
-            // Update inventory slots if storage was upgraded
-            if (type.equals("storage")) {
-                Bukkit.getScheduler().runTaskLater(
-                        Bukkit.getPluginManager().getPlugin("MetaMiner"),
-                        () -> InventoryManager.updateLockedSlots(p),
-                        1L
-                );
-            }
+        if (profile.takePoints(actualCost)) {
+            profile.setLevel(upgrade, currentLevel + 1);
+
+            // Áp lại ô khóa, Haste và sidebar sau khi sự kiện click đã xử lý xong; click bị huỷ
+            // nên CapacityTracker không tự thấy số ô mở khóa thay đổi
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getSessionManager().refresh(p);
+                plugin.getCapacityTracker().markDirty(p);
+            });
 
-            p.sendMessage(ChatColor.GREEN + "Đã nâng cấp " + type + " lên cấp " + (currentLevel + 1) + "!");
+            p.sendMessage(ChatColor.GREEN + "Đã nâng cấp " + upgrade.getKey() + " lên cấp " + (currentLevel + 1) + "!");
             p.playSound(p.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1, 1);
             openUpgradeMenu(p);
-            ScoreboardDisplay.show(p);
         } else {
             p.sendMessage(ChatColor.RED + "Không đủ điểm! Cần " + actualCost + " điểm.");
             p.playSound(p.getLocation(), Sound.BLOCK_NOTE_BLOCK_BASS, 1, 0.5f);
@@ -0,0 +1,144 @@
+package me.tien.metaminer.listeners;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.util.ExternalNftReader;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Gom các lượt đào block trong khu mỏ theo tick. Listener chỉ ghi một bản ghi
+ * gọn (chỉ số người chơi, ordinal của Material) vào bộ đệm; cuối tick mỗi
+ * người chơi được xử lý một lần (quay NFT, thống kê) cho mọi block đã đào.
+ */
+public class BreakAggregator implements Listener {
+
+    private final MetaMiner plugin;
+
+    // Chỉ số nhỏ cho mỗi người chơi đang online, dùng lại sau khi thoát
+    private final Map<UUID, Integer> indexByPlayer = new HashMap<>();
+    private Player[] players = new Player[64];
+    private int[] freeIndices = new int[16];
+    private int freeCount;
+    private int nextIndex;
+    // Chỉ số của người chơi vừa thoát, chỉ trả lại sau khi tick hiện tại đã được gom
+    private int[] pendingRelease = new int[16];
+    private int pendingCount;
+
+    // Bản ghi của tick hiện tại: (chỉ số người chơi << 32) | ordinal
+    private long[] records = new long[256];
+    private int size;
+    private int[] breaks = new int[64];
+
+    private final long[] minedByMaterial = new long[Material.values().length];
+    private long totalBreaks;
+    private int breaksLastTick;
+    private int playersLastTick;
+
+    public BreakAggregator(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
+    public void record(Player player, Material material) {
+        Integer index = indexByPlayer.get(player.getUniqueId());
+        if (index == null) index = assign(player);
+
+        if (size == records.length) records = Arrays.copyOf(records, size * 2);
+        records[size++] = ((long) index << 32) | material.ordinal();
+    }
+
+    private int assign(Player player) {
+        int index;
+        if (freeCount > 0) {
+            index = freeIndices[--freeCount];
+        } else {
+            index = nextIndex++;
+            if (index == players.length) players = Arrays.copyOf(players, index * 2);
+        }
+        players[index] = player;
+        indexByPlayer.put(player.getUniqueId(), index);
+        return index;
+    }
+
+    // Cuối tick người chơi đã offline nên quay NFT ngay cho các block đã đào trong tick này.
+    // LOW: chạy trước khi MiningSpeedListener xoá bộ đếm pity của người chơi
+    @EventHandler(priority = EventPriority.LOW)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        Integer index = indexByPlayer.remove(player.getUniqueId());
+        if (index == null) return;
+
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if ((int) (records[i] >>> 32) == index) count++;
+        }
+        if (count > 0) ExternalNftReader.tryDropNFTs(player, plugin, count);
+
+        if (pendingCount == pendingRelease.length) pendingRelease = Arrays.copyOf(pendingRelease, pendingCount * 2);
+        pendingRelease[pendingCount++] = index;
+    }
+
+    @EventHandler
+    public void onTickEnd(ServerTickEndEvent event) {
+        flush();
+    }
+
+    private void flush() {
+        breaksLastTick = size;
+        playersLastTick = 0;
+        if (size > 0) {
+            if (breaks.length < players.length) breaks = new int[players.length];
+            for (int i = 0; i < size; i++) {
+                long record = records[i];
+                if (breaks[(int) (record >>> 32)]++ == 0) playersLastTick++;
+                minedByMaterial[(int) record]++;
+            }
+            totalBreaks += size;
+            size = 0;
+
+            for (int index = 0; index < nextIndex; index++) {
+                int count = breaks[index];
+                if (count == 0) continue;
+                breaks[index] = 0;
+
+                Player player = players[index];
+                if (player != null && player.isOnline()) {
+                    ExternalNftReader.tryDropNFTs(player, plugin, count);
+                }
+            }
+        }
+
+        for (int i = 0; i < pendingCount; i++) {
+            int index = pendingRelease[i];
+            players[index] = null;
+            if (freeCount == freeIndices.length) freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+            freeIndices[freeCount++] = index;
+        }
+        pendingCount = 0;
+    }
+
+    public long getMined(Material material) {
+        return minedByMaterial[material.ordinal()];
+    }
+
+    public long getTotalBreaks() {
+        return totalBreaks;
+    }
+
+    public int getBreaksLastTick() {
+        return breaksLastTick;
+    }
+
+    public int getPlayersLastTick() {
+        return playersLastTick;
+    }
+}
@@ -0,0 +1,161 @@
+package me.tien.metaminer.listeners;
+
+import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.Upgrade;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Theo dõi số ô đã mở khóa và số ô trống trong phần đã mở khóa của túi đồ.
+ * Sự kiện làm thay đổi túi đồ chỉ đánh dấu người chơi; việc đếm lại chạy một
+ * lần ở tick kế tiếp cho mọi thay đổi trong tick đó. Kiểm tra "túi đồ đầy" khi
+ * đào chỉ còn là đọc một trường.
+ */
+public class CapacityTracker implements Listener {
+
+    private static final class Capacity {
+        private int unlocked;
+        private int free;
+    }
+
+    private final Plugin plugin;
+    private final Map<UUID, Capacity> capacities = new HashMap<>();
+    private final Set<UUID> dirty = new HashSet<>();
+    private boolean flushScheduled;
+
+    public CapacityTracker(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public boolean hasFreeSlot(Player player) {
+        return capacityOf(player).free > 0;
+    }
+
+    public int getUnlockedSlots(Player player) {
+        return capacityOf(player).unlocked;
+    }
+
+    private Capacity capacityOf(Player player) {
+        Capacity capacity = capacities.get(player.getUniqueId());
+        return capacity != null ? capacity : recount(player);
+    }
+
+    // Gọi sau mọi thay đổi túi đồ không đi qua sự kiện (vd. /claim, nâng cấp storage)
+    public void markDirty(Player player) {
+        dirty.add(player.getUniqueId());
+        if (!flushScheduled) {
+            flushScheduled = true;
+            Bukkit.getScheduler().runTask(plugin, this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        for (UUID uuid : dirty) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) recount(player);
+        }
+        dirty.clear();
+    }
+
+    private Capacity recount(Player player) {
+        Capacity capacity = capacities.computeIfAbsent(player.getUniqueId(), uuid -> new Capacity());
+        capacity.unlocked = InventoryManager.getAllowedSlots(PlayerDataManager.getProfile(player).getLevel(Upgrade.STORAGE));
+
+        // Ô chứa BARRIER trong phần đã mở khóa là ô khóa cũ, coi như trống
+        PlayerInventory inventory = player.getInventory();
+        int free = 0;
+        for (int i = 0; i < capacity.unlocked; i++) {
+            ItemStack item = inventory.getItem(i);
+            if (item == null || item.getType() == Material.AIR || item.getType() == Material.BARRIER) free++;
+        }
+        capacity.free = free;
+        return capacity;
+    }
+
+    private void markDirty(HumanEntity entity) {
+        if (entity instanceof Player player) markDirty(player);
+    }
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        capacities.remove(uuid);
+        dirty.remove(uuid);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickup(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player player) markDirty(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClick(InventoryClickEvent event) {
+        markDirty(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrag(InventoryDragEvent event) {
+        markDirty(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrop(PlayerDropItemEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onConsume(PlayerItemConsumeEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onItemBreak(PlayerItemBreakEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onDeath(PlayerDeathEvent event) {
+        markDirty(event.getEntity());
+    }
+
+    @EventHandler
+    public void onRespawn(PlayerRespawnEvent event) {
+        markDirty(event.getPlayer());
+    }
+}
@@ -1,6 +1,8 @@
 package me.tien.metaminer.listeners;
 
+import me.tien.metaminer.MetaMiner;
 import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.Upgrade;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -19,6 +21,12 @@ public class InventoryManager implements Listener {
     // Define how many slots are unlocked per storage level
     public static final int[] SLOTS_PER_LEVEL = {9, 18, 27, 36};
 
+    private final MetaMiner plugin;
+
+    public InventoryManager(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
         if (!(event.getWhoClicked() instanceof Player player)) return;
@@ -26,12 +34,11 @@ public class InventoryManager implements Listener {
         Inventory clickedInv = event.getClickedInventory();
         if (clickedInv == null || clickedInv.getType() != InventoryType.PLAYER) return;
 
-        // Áp dụng cả ở mining_lobby và mine_<tên>
-        String worldName = player.getWorld().getName();
-        if (!worldName.equals("mining_lobby") && !worldName.startsWith("mine_")) return;
+        // Áp dụng cả ở mining_lobby và trong khu mỏ
+        if (!player.getWorld().getName().equals("mining_lobby")
+                && plugin.getMineManager().getMineAt(player.getLocation()) == null) return;
 
-        int storageLevel = PlayerDataManager.getUpgrade(player.getUniqueId(), "storage");
-        int allowedSlots = SLOTS_PER_LEVEL[Math.min(storageLevel, SLOTS_PER_LEVEL.length - 1)];
+        int allowedSlots = plugin.getCapacityTracker().getUnlockedSlots(player);
 
         int slot = event.getSlot();
         if (slot >= allowedSlots && slot < 36) {
@@ -40,8 +47,8 @@ public class InventoryManager implements Listener {
         }
     }
     // Method to visualize locked slots
-    public static void updateLockedSlots(Player player) {
-        int storageLevel = PlayerDataManager.getUpgrade(player.getUniqueId(), "storage");
+    public static void updateLockedSlots(Player player, CapacityTracker capacityTracker) {
+        int storageLevel = PlayerDataManager.getProfile(player).getLevel(Upgrade.STORAGE);
         int allowedSlots = SLOTS_PER_LEVEL[Math.min(storageLevel, SLOTS_PER_LEVEL.length - 1)];
 
         ItemStack lockedItem = new ItemStack(Material.BARRIER);
@@ -55,22 +62,11 @@ public class InventoryManager implements Listener {
                 player.getInventory().setItem(i, lockedItem);
             }
         }
+        // setItem không phát sự kiện túi đồ
+        capacityTracker.markDirty(player);
     }
     // Method to get allowed slot count
     public static int getAllowedSlots(int storageLevel) {
         return SLOTS_PER_LEVEL[Math.min(storageLevel, SLOTS_PER_LEVEL.length - 1)];
     }
-    // Check if player has at least one unlocked empty slot
-    public static boolean hasUnlockedSlot(Player player) {
-        int storageLevel = PlayerDataManager.getUpgrade(player.getUniqueId(), "storage");
-        int allowed = getAllowedSlots(storageLevel);
-
-        for (int i = 0; i < allowed; i++) {
-            ItemStack item = player.getInventory().getItem(i);
-            if (item == null || item.getType() == Material.AIR || item.getType() == Material.BARRIER) {
-                return true;
-            }
-        }
-        return false;
-    }
 }
@@ -0,0 +1,122 @@
+package me.tien.metaminer.listeners;
+
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
+import me.tien.metaminer.util.ScoreboardDisplay;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.scoreboard.ScoreboardManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Phiên đào của người chơi: khi vào lobby hoặc khu mỏ thì áp sidebar, ô khóa
+ * và Haste một lần; khi rời đi thì gỡ. Đào block không phải kiểm tra hiệu ứng.
+ */
+public class MiningSessionManager implements Listener {
+
+    private enum Zone { NONE, LOBBY, MINE }
+
+    private static final String LOBBY_WORLD = "mining_lobby";
+
+    private final MetaMiner plugin;
+    private final Map<UUID, Zone> zones = new HashMap<>();
+    // Cấp Storage lần cuối đã đặt ô khóa; đổi thế giới không cần duyệt lại túi đồ
+    private final Map<UUID, Integer> lockedLevels = new HashMap<>();
+
+    public MiningSessionManager(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
+    private Zone zoneOf(World world) {
+        if (world.getName().equals(LOBBY_WORLD)) return Zone.LOBBY;
+        return plugin.getMineManager().isMineWorld(world) ? Zone.MINE : Zone.NONE;
+    }
+
+    // Áp lại toàn bộ sau khi điểm hoặc cấp nâng cấp thay đổi (mua nâng cấp, /claim)
+    public void refresh(Player player) {
+        Zone zone = zones.getOrDefault(player.getUniqueId(), Zone.NONE);
+        if (zone == Zone.NONE) return;
+
+        apply(player, zone);
+    }
+
+    private void enter(Player player, Zone zone) {
+        Zone previous = zones.put(player.getUniqueId(), zone);
+        if (previous == Zone.MINE && zone != Zone.MINE) {
+            player.removePotionEffect(PotionEffectType.FAST_DIGGING);
+        }
+
+        if (zone == Zone.NONE) {
+            zones.remove(player.getUniqueId());
+            ScoreboardManager manager = Bukkit.getScoreboardManager();
+            if (previous != null && manager != null) player.setScoreboard(manager.getMainScoreboard());
+            return;
+        }
+        apply(player, zone);
+    }
+
+    private void apply(Player player, Zone zone) {
+        ScoreboardDisplay.show(player);
+        PlayerProfile profile = PlayerDataManager.getProfile(player);
+        int storageLevel = profile.getLevel(Upgrade.STORAGE);
+        Integer lockedLevel = lockedLevels.put(player.getUniqueId(), storageLevel);
+        if (lockedLevel == null || lockedLevel != storageLevel) {
+            InventoryManager.updateLockedSlots(player, plugin.getCapacityTracker());
+        }
+
+        if (zone == Zone.MINE) {
+            // Haste cấp độ = speedLevel (không giới hạn 4)
+            int speedLevel = profile.getLevel(Upgrade.SPEED);
+            if (speedLevel > 0) {
+                player.addPotionEffect(new PotionEffect(PotionEffectType.FAST_DIGGING, Integer.MAX_VALUE, speedLevel, false, false, true));
+            }
+        }
+    }
+
+    // MONITOR: chạy sau MetaMiner.onJoin, lúc dữ liệu người chơi đã được nạp
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        enter(player, zoneOf(player.getWorld()));
+    }
+
+    @EventHandler
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        enter(player, zoneOf(player.getWorld()));
+    }
+
+    // Hiệu ứng (và ô khóa, nếu túi đồ bị rơi) mất khi chết; áp lại sau khi hồi sinh xong
+    @EventHandler
+    public void onRespawn(PlayerRespawnEvent event) {
+        Player player = event.getPlayer();
+        lockedLevels.remove(player.getUniqueId());
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) enter(player, zoneOf(player.getWorld()));
+        });
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        lockedLevels.remove(player.getUniqueId());
+        if (zones.remove(player.getUniqueId()) == Zone.MINE) {
+            player.removePotionEffect(PotionEffectType.FAST_DIGGING);
+        }
+    }
+}
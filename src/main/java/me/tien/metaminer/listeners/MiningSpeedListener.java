@@ -1,16 +1,26 @@
 package me.tien.metaminer.listeners;
 
 import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.config.ConfigSnapshot;
 import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
+import me.tien.metaminer.data.VirtualStorage;
+import me.tien.metaminer.mine.Mine;
+import me.tien.metaminer.mine.MineManager;
+import me.tien.metaminer.mine.MineResetPipeline;
 import me.tien.metaminer.util.ExternalNftReader;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
-import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
+import org.bukkit.event.block.BlockDropItemEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
 
 public class MiningSpeedListener implements Listener {
 
@@ -24,13 +34,25 @@ public class MiningSpeedListener implements Listener {
     public void onBlockBreak(BlockBreakEvent event) {
         Player player = event.getPlayer();
 
-        // Chỉ áp dụng khi đang trong thế giới mine_<tên>
-        if (!player.getWorld().getName().startsWith("mine_")) return;
+        MineManager mineManager = plugin.getMineManager();
+        Mine mine = mineManager.getMineAt(event.getBlock());
+        // Thế giới plot dùng chung: chỉ được đào trong ô của mình. Ô chưa cấp cũng đã được
+        // generator sinh quặng nên bị chặn như ô của người khác
+        if (mineManager.isPlotMode() && event.getBlock().getWorld().getName().equals(MineManager.PLOT_WORLD)
+                && !player.hasPermission("metaminer.admin")
+                && (mine == null || mine != mineManager.getMine(player))) {
+            event.setCancelled(true);
+            player.sendMessage(ChatColor.RED + "Bạn chỉ có thể đào trong khu mỏ của mình!");
+            return;
+        }
 
-        // Kiểm tra nếu inventory đã đầy (chỉ trong ô đã mở khóa)
-        if (!InventoryManager.hasUnlockedSlot(player)) {
+        // Chỉ áp dụng khi block nằm trong một khu mỏ (thế giới mine_<tên> hoặc ô plot)
+        if (mine == null) return;
+
+        // Kiểm tra nếu inventory (hoặc kho ảo) đã đầy
+        if (isStorageFull(player)) {
             event.setCancelled(true);
-            int storageLevel = PlayerDataManager.getUpgrade(player.getUniqueId(), "storage");
+            int storageLevel = PlayerDataManager.getProfile(player).getLevel(Upgrade.STORAGE);
             boolean isMaxed = storageLevel >= 3; // cấp độ tối đa là 3
             player.sendMessage(ChatColor.RED + "❌ Túi đồ của bạn đã đầy!");
             if (isMaxed) {
@@ -40,22 +62,71 @@ public class MiningSpeedListener implements Listener {
             }
             return;
         }
-        int speedLevel = PlayerDataManager.getUpgrade(player.getUniqueId(), "speed");
-        if (speedLevel > 0) {
-            // Haste cấp độ = speedLevel (không giới hạn 4)
-            PotionEffect current = player.getPotionEffect(PotionEffectType.FAST_DIGGING);
-            int amplifier = speedLevel;
-            if (current == null || current.getAmplifier() < amplifier) {
-                player.addPotionEffect(new PotionEffect(
-                        PotionEffectType.FAST_DIGGING,
-                        Integer.MAX_VALUE,
-                        amplifier,
-                        false,
-                        false,
-                        true
-                ));
-            }
+        // Haste do MiningSessionManager áp khi vào khu mỏ; quay NFT được gom theo tick ở BreakAggregator
+    }
+
+    // Chế độ kho ảo: vật phẩm có giá trị rơi từ khu mỏ được cộng thẳng vào bộ đếm, không sinh Item.
+    // Vật phẩm không có điểm rơi ra như bình thường, giống chế độ túi đồ
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockDrop(BlockDropItemEvent event) {
+        if (!plugin.getConfigManager().isVirtualStorage()) return;
+        if (plugin.getMineManager().getMineAt(event.getBlock()) == null) return;
+
+        Player player = event.getPlayer();
+        PlayerProfile profile = PlayerDataManager.getProfile(player);
+        VirtualStorage storage = profile.getVirtualStorage();
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        long capacity = virtualCapacity(profile);
+        long before = storage.getTotal();
+        // Phần vượt sức chứa vẫn rơi ra như bình thường
+        event.getItems().removeIf(item -> {
+            ItemStack stack = item.getItemStack();
+            if (config.getPointValue(stack.getType()) <= 0) return false;
+            long accepted = storage.add(stack.getType(), stack.getAmount(), capacity);
+            if (accepted == stack.getAmount()) return true;
+            stack.setAmount(stack.getAmount() - (int) accepted);
+            item.setItemStack(stack);
+            return false;
+        });
+        if (storage.getTotal() != before) profile.markDirty();
+    }
+
+    private boolean isStorageFull(Player player) {
+        if (plugin.getConfigManager().isVirtualStorage()) {
+            PlayerProfile profile = PlayerDataManager.getProfile(player);
+            return profile.getVirtualStorage().isFull(virtualCapacity(profile));
         }
-        ExternalNftReader.tryDropNFTs(player, plugin);
+        return !plugin.getCapacityTracker().hasFreeSlot(player);
+    }
+
+    private long virtualCapacity(PlayerProfile profile) {
+        return plugin.getConfigManager().getVirtualCapacity(profile.getLevel(Upgrade.STORAGE));
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        ExternalNftReader.resetPity(event.getPlayer().getUniqueId());
+    }
+
+    // Ghi nhận vị trí bị đào sau khi các listener khác đã quyết định huỷ hay không
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBroken(BlockBreakEvent event) {
+        Mine mine = plugin.getMineManager().recordBreak(event.getBlock());
+        if (mine == null) return;
+        plugin.getBreakAggregator().record(event.getPlayer(), event.getBlock().getType());
+        plugin.getMineManager().revealAround(event.getBlock(), plugin.getConfigManager().getOreSampler(), plugin.getPlacementScheduler());
+
+        // Khu mỏ gần cạn thì tự làm mới qua quy trình reset thông thường
+        MineResetPipeline resetPipeline = plugin.getResetPipeline();
+        if (mine.isDepleted(plugin.getConfigManager().getAutoRefillPercent()) && !resetPipeline.isResetting(mine)) {
+            event.getPlayer().sendMessage(ChatColor.YELLOW + "Khu mỏ đã gần cạn, tự động làm mới...");
+            resetPipeline.reset(mine, event.getPlayer());
+        }
+    }
+
+    // Block người chơi đặt vào thân quặng cũng cần được ghi lại khi reset
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaced(BlockPlaceEvent event) {
+        plugin.getMineManager().recordBreak(event.getBlock());
     }
 }
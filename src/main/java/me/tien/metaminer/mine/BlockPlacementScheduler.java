@@ -0,0 +1,265 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.MetaMiner;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hàng đợi đặt block dùng chung cho mọi khu mỏ. Mỗi tick rút bớt công việc
+ * trong giới hạn thời gian (ms), chia lượt xoay vòng giữa các khu mỏ và ưu tiên
+ * khu mỏ có chủ đang đứng bên trong.
+ */
+public class BlockPlacementScheduler {
+
+    // Số block đặt cho một khu mỏ trước khi chuyển lượt và kiểm tra đồng hồ
+    private static final int SLICE = 64;
+
+    private final MetaMiner plugin;
+    private final List<PlacementJob> jobs = new ArrayList<>();
+    private long budgetNanos;
+    private int cursor;
+    private BukkitTask task;
+
+    private long queueDepth;
+    private int blocksLastTick;
+    private double millisLastTick;
+    private double averageBlocksPerTick;
+
+    public BlockPlacementScheduler(MetaMiner plugin, double budgetMillis) {
+        this.plugin = plugin;
+        setBudgetMillis(budgetMillis);
+    }
+
+    public void start() {
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    // Công việc còn dở bị bỏ: khu mỏ của chúng không còn khớp với tập mined đã lưu
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (PlacementJob job : jobs) {
+            if (job.mine != null) job.mine.invalidate();
+        }
+        jobs.clear();
+        queueDepth = 0;
+    }
+
+    public void setBudgetMillis(double budgetMillis) {
+        this.budgetNanos = (long) (Math.max(0.1, budgetMillis) * 1_000_000L);
+    }
+
+    public CompletableFuture<Void> submit(Mine mine, World world, int originX, int originY, int originZ, MineLayout layout, UUID owner) {
+        return submit(mine, world, originX, originY, originZ, layout, null, owner);
+    }
+
+    // mask != null: chỉ đặt các vị trí có bit bật trong mask; mine dùng để biết chủ có đang đứng trong khu mỏ không
+    public CompletableFuture<Void> submit(Mine mine, World world, int originX, int originY, int originZ, MineLayout layout, BitSet mask, UUID owner) {
+        PlacementJob job = new PlacementJob(mine, world, originX, originY, originZ, layout, mask, owner);
+        jobs.add(job);
+        queueDepth += mask == null ? layout.volume() : mask.cardinality();
+        return job.future;
+    }
+
+    private void tick() {
+        if (jobs.isEmpty()) {
+            blocksLastTick = 0;
+            millisLastTick = 0;
+            averageBlocksPerTick *= 0.95;
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        int placed = 0;
+
+        MineManager mineManager = plugin.getMineManager();
+        for (PlacementJob job : jobs) {
+            job.priority = job.ownerInside(mineManager);
+        }
+
+        // Lượt 1: khu mỏ có chủ đang chờ bên trong; lượt 2: phần còn lại
+        placed += drain(true, deadline);
+        if (System.nanoTime() < deadline) {
+            placed += drain(false, deadline);
+        }
+
+        queueDepth -= placed;
+        blocksLastTick = placed;
+        millisLastTick = (System.nanoTime() - start) / 1_000_000.0;
+        averageBlocksPerTick = averageBlocksPerTick * 0.95 + placed * 0.05;
+
+        // Gỡ khỏi hàng đợi trước, callback hoàn thành có thể gửi thêm công việc mới
+        List<PlacementJob> finished = new ArrayList<>();
+        for (Iterator<PlacementJob> it = jobs.iterator(); it.hasNext(); ) {
+            PlacementJob job = it.next();
+            if (job.done()) {
+                it.remove();
+                finished.add(job);
+            }
+        }
+        for (PlacementJob job : finished) {
+            job.finish();
+        }
+    }
+
+    private int drain(boolean priority, long deadline) {
+        int placed = 0;
+        boolean progress = true;
+        while (progress && System.nanoTime() < deadline) {
+            progress = false;
+            int size = jobs.size();
+            for (int n = 0; n < size; n++) {
+                PlacementJob job = jobs.get((cursor + n) % size);
+                if (job.priority != priority || job.done()) continue;
+
+                placed += job.place(SLICE);
+                if (job.failure != null) {
+                    // Một công việc lỗi không được giữ cả hàng đợi; tick này gỡ nó và báo lỗi qua future
+                    plugin.getLogger().warning("Lỗi khi đặt block cho khu mỏ " + job.world.getName() + ": " + job.failure);
+                    queueDepth -= job.remaining();
+                    if (job.mine != null) job.mine.invalidate();
+                }
+                progress = true;
+                if (System.nanoTime() >= deadline) {
+                    cursor = (cursor + n + 1) % size;
+                    return placed;
+                }
+            }
+        }
+        return placed;
+    }
+
+    public boolean hasPendingWork(World world) {
+        for (PlacementJob job : jobs) {
+            if (job.world.equals(world)) return true;
+        }
+        return false;
+    }
+
+    // Vị trí (toạ độ thế giới) vẫn còn chờ được một công việc của khu mỏ này đặt
+    public boolean isPending(Mine mine, int x, int y, int z) {
+        for (PlacementJob job : jobs) {
+            if (job.mine == mine && job.isPending(x, y, z)) return true;
+        }
+        return false;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getPendingJobs() {
+        return jobs.size();
+    }
+
+    public int getBlocksLastTick() {
+        return blocksLastTick;
+    }
+
+    public double getMillisLastTick() {
+        return millisLastTick;
+    }
+
+    public double getAverageBlocksPerTick() {
+        return averageBlocksPerTick;
+    }
+
+    public double getBudgetMillis() {
+        return budgetNanos / 1_000_000.0;
+    }
+
+    private static class PlacementJob {
+        final Mine mine;
+        final World world;
+        final int originX, originY, originZ;
+        final MineLayout layout;
+        final BitSet mask;
+        final UUID owner;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        int next;
+        boolean priority;
+        RuntimeException failure;
+
+        PlacementJob(Mine mine, World world, int originX, int originY, int originZ, MineLayout layout, BitSet mask, UUID owner) {
+            this.mine = mine;
+            this.world = world;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.layout = layout;
+            this.mask = mask;
+            this.owner = owner;
+            this.next = mask == null ? 0 : mask.nextSetBit(0);
+        }
+
+        // Chế độ plot: mọi khu mỏ chung một thế giới, nên phải so đúng khu mỏ chứ không chỉ thế giới
+        boolean ownerInside(MineManager mineManager) {
+            if (owner == null || mine == null) return false;
+            Player player = Bukkit.getPlayer(owner);
+            return player != null && player.getWorld().equals(world) && mineManager.getMineAt(player.getLocation()) == mine;
+        }
+
+        boolean done() {
+            return failure != null || (mask == null ? next >= layout.volume() : next < 0);
+        }
+
+        boolean isPending(int x, int y, int z) {
+            if (done()) return false;
+            int lx = x - originX;
+            int ly = y - originY;
+            int lz = z - originZ;
+            if (lx < 0 || lx >= layout.sizeX() || ly < 0 || ly >= layout.sizeY() || lz < 0 || lz >= layout.sizeZ()) return false;
+            int index = layout.index(lx, ly, lz);
+            return index >= next && (mask == null || mask.get(index));
+        }
+
+        // Số block chưa đặt (tính cả vị trí đang lỗi)
+        long remaining() {
+            if (mask == null) return Math.max(0, layout.volume() - next);
+            return next < 0 ? 0 : mask.get(next, layout.volume()).cardinality();
+        }
+
+        // Lỗi khi đặt block được giữ lại trong failure, số block đã đặt trước đó vẫn được tính
+        int place(int max) {
+            int count = 0;
+            try {
+                while (count < max && !done()) {
+                    // Block đã đúng loại (vd. đá giữ chỗ còn nguyên của lazy reveal) thì không ghi lại
+                    Block block = world.getBlockAt(originX + layout.x(next), originY + layout.y(next), originZ + layout.z(next));
+                    Material material = layout.get(next);
+                    if (block.getType() != material) block.setType(material, false);
+                    count++;
+                    next = mask == null ? next + 1 : mask.nextSetBit(next + 1);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            return count;
+        }
+
+        void finish() {
+            layout.release();
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(null);
+            }
+        }
+    }
+}
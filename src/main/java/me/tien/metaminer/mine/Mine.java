@@ -0,0 +1,192 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.config.OreSampler;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.BitSet;
+
+/**
+ * Trạng thái của một khu mỏ: vị trí thân quặng và tập các block đã bị đào
+ * (bitset theo chỉ số giống MineLayout) để lần reset chỉ ghi lại phần đã đào.
+ */
+public class Mine {
+
+    // Khối giữ chỗ cho phần thân quặng chưa lộ ra (chế độ lazy reveal)
+    public static final Material PLACEHOLDER = Material.STONE;
+
+    private final String worldName;
+    private final MineRegion region;
+    private BitSet mined;
+    // Số bit đang bật trong mined, cập nhật cùng lúc để không phải đếm lại
+    private int minedCount;
+    // false khi không biết khu mỏ đã bị đào những gì (vd. sau khi khởi động lại)
+    private boolean tracked;
+    // false khi minedCount chưa phản ánh thế giới; đếm lại từ block trống ở lần đào đầu tiên
+    private boolean counted;
+    // Lazy reveal: vị trí chưa lộ là PLACEHOLDER, loại quặng thật được băm từ seed + chỉ số
+    private boolean lazy;
+    private long revealSeed;
+    private final BitSet revealed;
+    // Vị trí lộ ra khi lượt fill chưa đặt tới; được quyết định khi lượt fill xong
+    private final BitSet deferred;
+
+    public Mine(String worldName, MineRegion region, boolean tracked) {
+        this.worldName = worldName;
+        this.region = region;
+        this.mined = new BitSet(region.volume());
+        this.revealed = new BitSet(region.volume());
+        this.deferred = new BitSet(region.volume());
+        this.tracked = tracked;
+        this.counted = tracked;
+    }
+
+    public boolean markMined(int worldX, int worldY, int worldZ) {
+        int index = region.indexOf(worldX, worldY, worldZ);
+        if (index < 0 || mined.get(index)) return false;
+
+        mined.set(index);
+        minedCount++;
+        return true;
+    }
+
+    // Lấy tập block đã đào cho lần reset và bắt đầu theo dõi lại từ đầu
+    public BitSet takeMined() {
+        BitSet taken = mined;
+        mined = new BitSet(region.volume());
+        minedCount = 0;
+        counted = true;
+        return taken;
+    }
+
+    // Trạng thái đào đọc lại từ MineStateStore
+    void restoreMined(BitSet positions, boolean tracked) {
+        mined = positions;
+        minedCount = positions.cardinality();
+        this.tracked = tracked;
+        counted = true;
+    }
+
+    // Lượt ghi block bị bỏ dở: tập mined đã bị lấy ra nhưng thế giới chưa được lấp,
+    // nên coi như chưa rõ trạng thái (reset kế tiếp ghi toàn bộ, số đếm làm lại)
+    public void invalidate() {
+        tracked = false;
+        counted = false;
+    }
+
+    BitSet getMined() {
+        return mined;
+    }
+
+    public boolean needsRecount() {
+        return !counted;
+    }
+
+    // Khu mỏ không rõ trạng thái: coi mọi ô trống trong thân quặng là đã bị đào.
+    // Gọi khi chunk của khu mỏ đang được nạp (vd. lúc người chơi đào)
+    public void recount(World world) {
+        for (int i = 0; i < region.volume(); i++) {
+            if (world.getBlockAt(region.getOriginX() + region.x(i), region.getOriginY() + region.y(i),
+                    region.getOriginZ() + region.z(i)).getType().isAir()) {
+                mined.set(i);
+            }
+        }
+        minedCount = mined.cardinality();
+        counted = true;
+    }
+
+    public int getRemaining() {
+        return region.volume() - minedCount;
+    }
+
+    // Còn dưới thresholdPercent % thân quặng chưa bị đào; 0 = tắt
+    public boolean isDepleted(int thresholdPercent) {
+        return thresholdPercent > 0 && getRemaining() * 100L < (long) thresholdPercent * region.volume();
+    }
+
+    // Các vị trí sắp được ghi PLACEHOLDER; phần còn lại của khu mỏ giữ nguyên block thật
+    public void hide(BitSet positions, long seed) {
+        if (!lazy) {
+            revealed.set(0, region.volume());
+            lazy = true;
+        }
+        revealed.andNot(positions);
+        revealSeed = seed;
+    }
+
+    // Khu mỏ được ghi toàn bộ bằng quặng thật
+    public void revealAll() {
+        lazy = false;
+        revealed.clear();
+        deferred.clear();
+    }
+
+    // Trạng thái lazy reveal đọc lại từ MineStateStore
+    void restoreLazy(long seed, BitSet positions) {
+        lazy = true;
+        revealSeed = seed;
+        revealed.clear();
+        revealed.or(positions);
+    }
+
+    long getRevealSeed() {
+        return revealSeed;
+    }
+
+    BitSet getRevealed() {
+        return revealed;
+    }
+
+    public void deferReveal(int index) {
+        deferred.set(index);
+    }
+
+    // Lấy các vị trí đã hoãn và xoá danh sách
+    public BitSet takeDeferred() {
+        BitSet taken = (BitSet) deferred.clone();
+        deferred.clear();
+        return taken;
+    }
+
+    public void markRevealed(int index) {
+        revealed.set(index);
+    }
+
+    public void markRevealed(BitSet positions) {
+        revealed.or(positions);
+    }
+
+    // Block bị đào hoặc do người chơi đặt thì không được quyết định lại
+    public boolean needsReveal(int index) {
+        return lazy && !revealed.get(index) && !mined.get(index);
+    }
+
+    public Material oreAt(int index, OreSampler sampler) {
+        return sampler.sample(revealSeed + index * 0x9E3779B97F4A7C15L);
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    public void setTracked(boolean tracked) {
+        this.tracked = tracked;
+    }
+
+    public World getWorld() {
+        return Bukkit.getWorld(worldName);
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public MineRegion getRegion() {
+        return region;
+    }
+}
@@ -0,0 +1,115 @@
+package me.tien.metaminer.mine;
+
+import org.bukkit.Material;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Bố cục khu mỏ dạng nén: một bảng màu Material và một mảng byte chỉ số,
+ * đánh địa chỉ theo (x, y, z) tương đối trong vùng mỏ. Dùng lại qua pool
+ * giữa các lần reset thay vì tạo một đối tượng cho mỗi block.
+ */
+public final class MineLayout {
+
+    private static final int MAX_PALETTE = 256;
+    private static final int POOL_LIMIT = 16;
+    private static final ArrayDeque<MineLayout> POOL = new ArrayDeque<>();
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final byte[] blocks;
+    private final Material[] palette = new Material[MAX_PALETTE];
+    // ordinal -> chỉ số bảng màu + 1 (0 = chưa có)
+    private final short[] paletteLookup = new short[MATERIAL_COUNT];
+    private int paletteSize;
+
+    private MineLayout(int sizeX, int sizeY, int sizeZ) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.blocks = new byte[sizeX * sizeY * sizeZ];
+    }
+
+    public static MineLayout acquire(int sizeX, int sizeY, int sizeZ) {
+        synchronized (POOL) {
+            for (MineLayout layout : POOL) {
+                if (layout.sizeX == sizeX && layout.sizeY == sizeY && layout.sizeZ == sizeZ) {
+                    POOL.remove(layout);
+                    return layout;
+                }
+            }
+        }
+        return new MineLayout(sizeX, sizeY, sizeZ);
+    }
+
+    public void release() {
+        clear();
+        synchronized (POOL) {
+            if (POOL.size() < POOL_LIMIT) POOL.push(this);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < paletteSize; i++) {
+            paletteLookup[palette[i].ordinal()] = 0;
+            palette[i] = null;
+        }
+        paletteSize = 0;
+        Arrays.fill(blocks, (byte) 0);
+    }
+
+    public int volume() {
+        return blocks.length;
+    }
+
+    public int sizeX() {
+        return sizeX;
+    }
+
+    public int sizeY() {
+        return sizeY;
+    }
+
+    public int sizeZ() {
+        return sizeZ;
+    }
+
+    public int index(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+
+    public int x(int index) {
+        return index % sizeX;
+    }
+
+    public int y(int index) {
+        return index / (sizeX * sizeZ);
+    }
+
+    public int z(int index) {
+        return (index / sizeX) % sizeZ;
+    }
+
+    public void set(int index, Material material) {
+        blocks[index] = (byte) paletteIndex(material);
+    }
+
+    public Material get(int index) {
+        return palette[blocks[index] & 0xFF];
+    }
+
+    private int paletteIndex(Material material) {
+        int slot = paletteLookup[material.ordinal()];
+        if (slot != 0) return slot - 1;
+
+        if (paletteSize == MAX_PALETTE) {
+            throw new IllegalStateException("Bảng màu khu mỏ vượt quá " + MAX_PALETTE + " loại block");
+        }
+        palette[paletteSize] = material;
+        paletteLookup[material.ordinal()] = (short) (paletteSize + 1);
+        return paletteSize++;
+    }
+}
@@ -0,0 +1,217 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.config.OreSampler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MineManager {
+
+    private static final String WORLD_PREFIX = "mine_";
+    public static final String PLOT_WORLD = "metaminer_plots";
+    private static final BlockFace[] FACES = {
+            BlockFace.UP, BlockFace.DOWN, BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST
+    };
+
+    // Hình học khu mỏ mặc định; thế giới riêng đặt ở góc của nó, plot dời theo ô
+    private final MineRegion region;
+    private final Map<String, Mine> mines = new HashMap<>();
+    // Chế độ plot: tất cả khu mỏ nằm trong một thế giới chung, tra theo chỉ số ô
+    private final PlotAllocator plots;
+    private Mine[] plotMines = new Mine[64];
+    private final MineStateStore states;
+
+    // Thống kê reset: số lần, số block đã ghi lại và số block được bỏ qua
+    private long resets;
+    private long blocksRefilled;
+    private long blocksSkipped;
+
+    public MineManager(MineRegion region, PlotAllocator plots, MineStateStore states) {
+        this.region = region;
+        this.plots = plots;
+        this.states = states;
+    }
+
+    public boolean isPlotMode() {
+        return plots != null;
+    }
+
+    public MineRegion getRegion() {
+        return region;
+    }
+
+    public PlotAllocator getPlots() {
+        return plots;
+    }
+
+    public static String worldNameFor(Player player) {
+        return WORLD_PREFIX + player.getName();
+    }
+
+    public boolean isMineWorld(World world) {
+        return plots == null ? world.getName().startsWith(WORLD_PREFIX) : world.getName().equals(PLOT_WORLD);
+    }
+
+    // Thế giới vừa sinh mới: trạng thái đã lưu (nếu có) thuộc về thế giới cũ cùng tên
+    public Mine register(World world, boolean tracked) {
+        Mine mine = new Mine(world.getName(), region, tracked);
+        states.discard(mine);
+        mines.put(world.getName(), mine);
+        return mine;
+    }
+
+    public Mine getMine(World world) {
+        if (!world.getName().startsWith(WORLD_PREFIX)) return null;
+        // Khu mỏ nạp lại từ đĩa: chưa biết đã bị đào gì, lần reset đầu sẽ ghi toàn bộ
+        return mines.computeIfAbsent(world.getName(), name -> restore(new Mine(name, region, false)));
+    }
+
+    private Mine restore(Mine mine) {
+        states.load(mine);
+        return mine;
+    }
+
+    // Khu mỏ của người chơi; null nếu chưa có (thế giới chưa nạp hoặc chưa được cấp ô)
+    public Mine getMine(Player player) {
+        if (plots == null) {
+            World world = Bukkit.getWorld(worldNameFor(player));
+            return world == null ? null : getMine(world);
+        }
+        int plot = plots.getPlot(player.getUniqueId());
+        return plot < 0 ? null : plotMine(plot, false);
+    }
+
+    // Cấp ô mới cho người chơi nếu chưa có; ô mới đã được generator sinh sẵn quặng
+    public Mine allocatePlot(Player player) {
+        boolean fresh = plots.getPlot(player.getUniqueId()) < 0;
+        return plotMine(plots.allocate(player.getUniqueId()), fresh);
+    }
+
+    private Mine plotMine(int plot, boolean tracked) {
+        if (plot >= plotMines.length) {
+            plotMines = Arrays.copyOf(plotMines, Math.max(plot + 1, plotMines.length * 2));
+        }
+        Mine mine = plotMines[plot];
+        if (mine == null) {
+            mine = new Mine(PLOT_WORLD, region.inCell(plots.cellX(plot), plots.cellZ(plot), plots.getPlotSize()), tracked);
+            if (tracked) {
+                states.discard(mine);
+            } else {
+                states.load(mine);
+            }
+            plotMines[plot] = mine;
+        }
+        return mine;
+    }
+
+    public Mine getMineAt(World world, int x, int z) {
+        if (plots == null) return getMine(world);
+        if (!world.getName().equals(PLOT_WORLD)) return null;
+
+        int plot = plots.plotAt(x, z);
+        if (plot < 0 || plot >= plots.getAllocatedCount()) return null;
+        return plotMine(plot, false);
+    }
+
+    public Mine getMineAt(Block block) {
+        return getMineAt(block.getWorld(), block.getX(), block.getZ());
+    }
+
+    public Mine getMineAt(Location location) {
+        return getMineAt(location.getWorld(), location.getBlockX(), location.getBlockZ());
+    }
+
+    // Thế giới bị unload: lưu trạng thái rồi bỏ khỏi bộ nhớ, lần nạp sau đọc lại
+    public void forget(String worldName) {
+        Mine mine = mines.remove(worldName);
+        if (mine != null) states.save(mine);
+    }
+
+    // Khi tắt plugin
+    public void saveAll() {
+        mines.values().forEach(states::save);
+        for (Mine mine : plotMines) {
+            if (mine != null) states.save(mine);
+        }
+    }
+
+    // Trả về khu mỏ chứa block (null nếu không thuộc khu mỏ nào)
+    public Mine recordBreak(Block block) {
+        Mine mine = getMineAt(block);
+        if (mine != null) {
+            if (mine.needsRecount()) mine.recount(block.getWorld());
+            mine.markMined(block.getX(), block.getY(), block.getZ());
+        }
+        return mine;
+    }
+
+    // Lazy reveal: quyết định quặng cho các block vừa lộ ra quanh block bị đào.
+    // Vị trí lượt fill chưa đặt tới thì hoãn lại, nếu không đá giữ chỗ sẽ ghi đè quặng vừa lộ
+    public void revealAround(Block block, OreSampler sampler, BlockPlacementScheduler scheduler) {
+        Mine mine = getMineAt(block);
+        if (mine == null || !mine.isLazy()) return;
+
+        for (BlockFace face : FACES) {
+            Block neighbour = block.getRelative(face);
+            int index = mine.getRegion().indexOf(neighbour.getX(), neighbour.getY(), neighbour.getZ());
+            if (index < 0 || !mine.needsReveal(index)) continue;
+
+            if (scheduler.isPending(mine, neighbour.getX(), neighbour.getY(), neighbour.getZ())) {
+                mine.deferReveal(index);
+                continue;
+            }
+            reveal(mine, neighbour, index, sampler);
+        }
+    }
+
+    // Gọi khi lượt fill của khu mỏ đã đặt xong
+    public void revealDeferred(Mine mine, OreSampler sampler) {
+        World world = mine.getWorld();
+        BitSet deferred = mine.takeDeferred();
+        if (world == null || !mine.isLazy()) return;
+
+        MineRegion mineRegion = mine.getRegion();
+        for (int i = deferred.nextSetBit(0); i >= 0; i = deferred.nextSetBit(i + 1)) {
+            if (!mine.needsReveal(i)) continue;
+            Block block = world.getBlockAt(mineRegion.getOriginX() + mineRegion.x(i),
+                    mineRegion.getOriginY() + mineRegion.y(i), mineRegion.getOriginZ() + mineRegion.z(i));
+            reveal(mine, block, i, sampler);
+        }
+    }
+
+    private static void reveal(Mine mine, Block block, int index, OreSampler sampler) {
+        mine.markRevealed(index);
+        if (block.getType() != Mine.PLACEHOLDER) return;
+        Material ore = mine.oreAt(index, sampler);
+        if (ore != Mine.PLACEHOLDER) {
+            block.setType(ore, false);
+        }
+    }
+
+    public void recordReset(int refilled, int volume) {
+        resets++;
+        blocksRefilled += refilled;
+        blocksSkipped += volume - refilled;
+    }
+
+    public long getResets() {
+        return resets;
+    }
+
+    public long getBlocksRefilled() {
+        return blocksRefilled;
+    }
+
+    public long getBlocksSkipped() {
+        return blocksSkipped;
+    }
+}
@@ -0,0 +1,187 @@
+package me.tien.metaminer.mine;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.BitSet;
+import java.util.function.IntFunction;
+
+/**
+ * Hình học của một khu mỏ: góc thân quặng, kích thước và các lớp theo chiều cao.
+ * Từ dưới lên: sàn bedrock (y = -1), thân quặng (0..sizeY-1), khoảng trống
+ * headroom phía trên, tất cả được bao bởi vỏ bedrock. Mọi nơi fill, reset, đặt
+ * kính hay dịch chuyển đều đọc toạ độ từ đây.
+ */
+public final class MineRegion {
+
+    // Kính chắn khi reset nằm cách mặt quặng 2 block
+    private static final int GLASS_GAP = 3;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int headroom;
+
+    // Tính sẵn cho phép đổi chỉ số ↔ toạ độ (cùng thứ tự với MineLayout)
+    private final int layerArea;
+    private final int volume;
+    private final int surfaceStart;
+
+    public MineRegion(int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ, int headroom) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.headroom = headroom;
+        this.layerArea = sizeX * sizeZ;
+        this.volume = layerArea * sizeY;
+        this.surfaceStart = volume - layerArea;
+    }
+
+    public MineRegion withOrigin(int originX, int originY, int originZ) {
+        return new MineRegion(originX, originY, originZ, sizeX, sizeY, sizeZ, headroom);
+    }
+
+    // Khu mỏ đặt giữa một ô lưới có góc (cellX, cellZ), giữ nguyên originY
+    public MineRegion inCell(int cellX, int cellZ, int cellSize) {
+        return withOrigin(cellX + (cellSize - sizeX) / 2, originY, cellZ + (cellSize - sizeZ) / 2);
+    }
+
+    public int index(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+
+    public int x(int index) {
+        return index % sizeX;
+    }
+
+    public int y(int index) {
+        return index / layerArea;
+    }
+
+    public int z(int index) {
+        return (index / sizeX) % sizeZ;
+    }
+
+    // Chỉ số trong thân quặng của toạ độ thế giới, -1 nếu nằm ngoài
+    public int indexOf(int worldX, int worldY, int worldZ) {
+        int x = worldX - originX;
+        int y = worldY - originY;
+        int z = worldZ - originZ;
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) return -1;
+        return index(x, y, z);
+    }
+
+    // Lớp trên cùng là lớp duy nhất lộ ra ngay sau khi fill
+    public boolean isSurface(int index) {
+        return index >= surfaceStart;
+    }
+
+    // Toạ độ tương đối (so với góc thân quặng) có thuộc vỏ bedrock không
+    public boolean isShell(int x, int y, int z) {
+        return y == -1 || x == -1 || x == sizeX || z == -1 || z == sizeZ;
+    }
+
+    public int getShellTop() {
+        return sizeY + headroom - 1;
+    }
+
+    public int getGlassY() {
+        return originY + sizeY + GLASS_GAP - 1;
+    }
+
+    // Đứng ngay trên mặt quặng, giữa khu mỏ
+    public Location getSpawn(World world) {
+        return new Location(world, originX + sizeX / 2.0, originY + sizeY, originZ + sizeZ / 2.0);
+    }
+
+    public Location getBarrierSpawn(World world) {
+        return new Location(world, originX + sizeX / 2.0, getGlassY() + 1, originZ + sizeZ / 2.0);
+    }
+
+    // Toàn bộ khu mỏ kèm vỏ bedrock, góc layout ở (origin - 1)
+    public MineLayout fullLayout(IntFunction<Material> ore) {
+        MineLayout layout = MineLayout.acquire(sizeX + 2, sizeY + headroom + 1, sizeZ + 2);
+        for (int i = 0; i < layout.volume(); i++) {
+            int x = layout.x(i) - 1;
+            int y = layout.y(i) - 1;
+            int z = layout.z(i) - 1;
+            Material material;
+            if (isShell(x, y, z)) {
+                material = Material.BEDROCK;
+            } else if (y < sizeY) {
+                material = ore.apply(index(x, y, z));
+            } else {
+                material = Material.AIR;
+            }
+            layout.set(i, material);
+        }
+        return layout;
+    }
+
+    // Mask cho fullLayout bỏ qua lớp kính bên trong vỏ: kính do quy trình reset tự gỡ,
+    // fill không được ghi đè nó bằng không khí khi người chơi còn đứng trên đó
+    public BitSet fullLayoutMask() {
+        int layoutX = sizeX + 2;
+        int layoutZ = sizeZ + 2;
+        int layoutVolume = layoutX * (sizeY + headroom + 1) * layoutZ;
+        BitSet mask = new BitSet(layoutVolume);
+        mask.set(0, layoutVolume);
+
+        int glassLayer = getGlassY() - originY + 1;
+        if (glassLayer <= getShellTop() + 1) {
+            for (int z = 1; z <= sizeZ; z++) {
+                int rowStart = (glassLayer * layoutZ + z) * layoutX;
+                mask.clear(rowStart + 1, rowStart + sizeX + 1);
+            }
+        }
+        return mask;
+    }
+
+    // Một lớp phủ kín mặt khu mỏ, đặt ở getGlassY()
+    public MineLayout barrierLayout(Material material) {
+        MineLayout layout = MineLayout.acquire(sizeX, 1, sizeZ);
+        for (int i = 0; i < layout.volume(); i++) {
+            layout.set(i, material);
+        }
+        return layout;
+    }
+
+    public int volume() {
+        return volume;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    public int getHeadroom() {
+        return headroom;
+    }
+}
@@ -0,0 +1,254 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.config.ConfigManager;
+import me.tien.metaminer.config.OreSampler;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+
+/**
+ * Quy trình reset khu mỏ: kính chắn → đếm ngược → fill → gỡ kính. Future trả về
+ * chỉ hoàn thành khi block cuối cùng đã được đặt. Mỗi khu mỏ chỉ có một lượt
+ * reset tại một thời điểm, yêu cầu lặp lại được gộp vào lượt đang chạy.
+ */
+public class MineResetPipeline implements Listener {
+
+    private static final int COUNTDOWN_SECONDS = 10;
+
+    private final MetaMiner plugin;
+    private final Map<Mine, ResetRun> running = new IdentityHashMap<>();
+    private final ProtectionIndex protection = new ProtectionIndex();
+
+    public MineResetPipeline(MetaMiner plugin) {
+        this.plugin = plugin;
+    }
+
+    public CompletableFuture<Void> reset(Mine mine, Player player) {
+        ResetRun current = running.get(mine);
+        if (current != null) {
+            player.sendMessage(ChatColor.YELLOW + "Khu mỏ đang được reset, vui lòng đợi...");
+            return current.future;
+        }
+
+        ResetRun run = new ResetRun(mine, player);
+        running.put(mine, run);
+        run.future.whenComplete((v, error) -> running.remove(mine, run));
+        run.start();
+        return run.future;
+    }
+
+    public boolean isResetting(Mine mine) {
+        return running.containsKey(mine);
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        List<ResetRun> owned = new ArrayList<>();
+        for (ResetRun run : running.values()) {
+            if (uuid.equals(run.owner)) owned.add(run);
+        }
+        owned.forEach(ResetRun::cancel);
+    }
+
+    @EventHandler
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (protection.isProtected(event.getBlock())) {
+            event.setCancelled(true);
+            event.getPlayer().sendMessage(ChatColor.RED + "Không thể đập vỡ lớp kính bảo vệ!");
+        }
+    }
+
+    private final class ResetRun {
+        private final Mine mine;
+        private final MineRegion region;
+        private final Player player;
+        private final UUID owner;
+        private final int glassY;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private ProtectionIndex.Area barrier;
+        private boolean cancelled;
+        private BukkitTask countdownTask;
+        private CompletableFuture<Void> countdownDone;
+        private World world;
+
+        private ResetRun(Mine mine, Player player) {
+            this.mine = mine;
+            this.region = mine.getRegion();
+            this.player = player;
+            this.owner = player.getUniqueId();
+            this.glassY = region.getGlassY();
+        }
+
+        private void start() {
+            // Lấy thế giới một lần cho cả lượt; thế giới đã bị unload thì không có gì để reset
+            world = mine.getWorld();
+            if (world == null) {
+                plugin.getLogger().warning("Không thể reset khu mỏ " + mine.getWorldName() + ": thế giới chưa được nạp");
+                player.sendMessage(ChatColor.RED + "Khu mỏ chưa sẵn sàng, vui lòng thử lại sau.");
+                future.completeExceptionally(new IllegalStateException("Thế giới " + mine.getWorldName() + " chưa được nạp"));
+                return;
+            }
+
+            player.sendMessage(ChatColor.GOLD + "Đang chuẩn bị reset khu đào...");
+            CompletableFuture<Void> filled = placeBarrier()
+                    .thenCompose(v -> countdown())
+                    .thenCompose(v -> fill());
+
+            // Kính luôn được gỡ, kể cả khi lượt reset bị huỷ giữa chừng; future luôn hoàn thành
+            // (kể cả khi gỡ kính lỗi) để khu mỏ không bị kẹt trong running
+            filled.whenComplete((v, fillError) -> releaseBarrier().whenComplete((released, releaseError) -> {
+                Throwable error = fillError != null ? fillError : releaseError;
+                if (error != null) {
+                    future.completeExceptionally(error);
+                    return;
+                }
+                if (player.isOnline()) {
+                    player.teleport(region.getSpawn(world));
+                    player.sendMessage(ChatColor.GREEN + "✅ Khu mỏ đã được reset!");
+                }
+                future.complete(null);
+            }));
+        }
+
+        // Đã bắt đầu fill thì để chạy hết, chỉ bỏ các bước dành cho người chơi
+        private void cancel() {
+            cancelled = true;
+            if (countdownTask != null) countdownTask.cancel();
+            if (countdownDone != null) countdownDone.completeExceptionally(new CancellationException("Người chơi đã thoát"));
+        }
+
+        private CompletableFuture<Void> placeBarrier() {
+            barrier = protection.protect(world, region.getOriginX(), glassY, region.getOriginZ(),
+                    region.getSizeX(), region.getSizeZ());
+            return plugin.getPlacementScheduler().submit(mine, world, region.getOriginX(), glassY, region.getOriginZ(),
+                    region.barrierLayout(Material.GLASS), owner);
+        }
+
+        private CompletableFuture<Void> releaseBarrier() {
+            if (barrier == null) return CompletableFuture.completedFuture(null);
+            return plugin.getPlacementScheduler().submit(mine, world, region.getOriginX(), glassY, region.getOriginZ(),
+                    region.barrierLayout(Material.AIR), owner)
+                    .whenComplete((v, error) -> protection.release(barrier));
+        }
+
+        private CompletableFuture<Void> countdown() {
+            if (cancelled) return CompletableFuture.failedFuture(new CancellationException("Người chơi đã thoát"));
+
+            player.teleport(region.getBarrierSpawn(world));
+            countdownDone = new CompletableFuture<>();
+            countdownTask = new BukkitRunnable() {
+                int countdown = COUNTDOWN_SECONDS;
+
+                @Override
+                public void run() {
+                    if (countdown > 0) {
+                        player.sendTitle(
+                                ChatColor.GOLD + "Reset trong " + countdown + "s",
+                                ChatColor.YELLOW + "Vui lòng đợi...", 5, 10, 5
+                        );
+                        countdown--;
+                    } else {
+                        this.cancel();
+                        player.sendMessage(ChatColor.YELLOW + "Đang reset khu mỏ...");
+                        countdownDone.complete(null);
+                    }
+                }
+            }.runTaskTimer(plugin, 0L, 20L);
+            return countdownDone;
+        }
+
+        private CompletableFuture<Void> fill() {
+            if (cancelled) return CompletableFuture.failedFuture(new CancellationException("Người chơi đã thoát"));
+
+            if (mine.isTracked()) {
+                return refillMinedBlocks(mine, world, owner);
+            }
+            CompletableFuture<Void> filled = fillMineArea(mine, world, ConfigManager.newOreRandom(), owner);
+            mine.takeMined();
+            mine.setTracked(true);
+            plugin.getMineManager().recordReset(region.volume(), region.volume());
+            return filled;
+        }
+    }
+
+    private CompletableFuture<Void> fillMineArea(Mine mine, World world, RandomGenerator oreRandom, UUID owner) {
+        ConfigManager configManager = plugin.getConfigManager();
+        MineRegion region = mine.getRegion();
+        int startX = region.getOriginX();
+        int startY = region.getOriginY();
+        int startZ = region.getOriginZ();
+        plugin.getLogger().info("Bắt đầu tạo khu mỏ tại vị trí (" + startX + ", " + startY + ", " + startZ + ")");
+
+        MineLayout layout;
+        if (configManager.isLazyReveal()) {
+            BitSet all = new BitSet(region.volume());
+            all.set(0, region.volume());
+            mine.hide(all, oreRandom.nextLong());
+            layout = region.fullLayout(index -> lazyFillMaterial(mine, index));
+        } else {
+            mine.revealAll();
+            // Giữ một bảng quặng cho cả lượt fill dù /metaminer reload chạy giữa chừng
+            OreSampler sampler = configManager.getOreSampler();
+            layout = region.fullLayout(index -> sampler.sample(oreRandom));
+        }
+
+        return plugin.getPlacementScheduler().submit(mine, world, startX - 1, startY - 1, startZ - 1, layout, region.fullLayoutMask(), owner)
+                .thenRun(() -> {
+                    plugin.getMineManager().revealDeferred(mine, configManager.getOreSampler());
+                    plugin.getLogger().info("Hoàn thành việc tạo khu mỏ!");
+                });
+    }
+
+    // Chỉ ghi lại các vị trí đã bị đào, vỏ bedrock và quặng còn nguyên được giữ lại
+    private CompletableFuture<Void> refillMinedBlocks(Mine mine, World world, UUID owner) {
+        ConfigManager configManager = plugin.getConfigManager();
+        MineRegion region = mine.getRegion();
+        BitSet mined = mine.takeMined();
+        int refilled = mined.cardinality();
+
+        MineLayout layout = MineLayout.acquire(region.getSizeX(), region.getSizeY(), region.getSizeZ());
+        RandomGenerator oreRandom = ConfigManager.newOreRandom();
+        boolean lazy = configManager.isLazyReveal();
+        OreSampler sampler = configManager.getOreSampler();
+        if (lazy) {
+            mine.hide(mined, oreRandom.nextLong());
+        } else {
+            mine.markRevealed(mined);
+        }
+        for (int i = mined.nextSetBit(0); i >= 0; i = mined.nextSetBit(i + 1)) {
+            layout.set(i, lazy ? lazyFillMaterial(mine, i) : sampler.sample(oreRandom));
+        }
+
+        plugin.getMineManager().recordReset(refilled, region.volume());
+        plugin.getLogger().info("Reset khu mỏ " + mine.getWorldName() + ": ghi lại " + refilled + "/" + region.volume() + " block");
+
+        return plugin.getPlacementScheduler().submit(mine, world, region.getOriginX(), region.getOriginY(), region.getOriginZ(), layout, mined, owner)
+                .thenRun(() -> plugin.getMineManager().revealDeferred(mine, configManager.getOreSampler()));
+    }
+
+    // Chỉ lớp trên cùng lộ ra ngay sau khi fill, phần bên dưới là khối giữ chỗ
+    private Material lazyFillMaterial(Mine mine, int index) {
+        if (!mine.getRegion().isSurface(index)) return Mine.PLACEHOLDER;
+        mine.markRevealed(index);
+        return mine.oreAt(index, plugin.getConfigManager().getOreSampler());
+    }
+}
@@ -0,0 +1,92 @@
+package me.tien.metaminer.mine;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Lưu trạng thái của khu mỏ không tái tạo được từ thế giới (các block đã đào,
+ * lazy reveal) vào thư mục mines, mỗi khu mỏ một file theo tên thế giới và góc
+ * thân quặng. Ghi khi thế giới bị unload và khi tắt plugin; file bị xoá ngay
+ * khi đọc lại, nên sau khi server sập khu mỏ được coi là chưa rõ trạng thái
+ * thay vì dùng dữ liệu cũ.
+ */
+public class MineStateStore {
+
+    private final File folder;
+    private final Logger logger;
+
+    public MineStateStore(File folder, Logger logger) {
+        this.folder = folder;
+        this.logger = logger;
+    }
+
+    private File fileFor(Mine mine) {
+        MineRegion region = mine.getRegion();
+        return new File(folder, mine.getWorldName() + "_" + region.getOriginX() + "_" + region.getOriginZ() + ".yml");
+    }
+
+    // Nạp trạng thái đã lưu vào khu mỏ vừa tạo; không có file thì giữ nguyên
+    public void load(Mine mine) {
+        File file = fileFor(mine);
+        if (!file.exists()) return;
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        if (config.getInt("volume") != mine.getRegion().volume()) {
+            logger.warning("Bỏ qua trạng thái khu mỏ cũ (kích thước đã đổi): " + file.getName());
+            file.delete();
+            return;
+        }
+        mine.restoreMined(bits(config.getLongList("mined")), config.getBoolean("tracked"));
+        if (config.getBoolean("lazy")) {
+            mine.restoreLazy(config.getLong("reveal_seed"), bits(config.getLongList("revealed")));
+        }
+        file.delete();
+    }
+
+    public void save(Mine mine) {
+        // Chưa rõ trạng thái thì không có gì đáng lưu; lần nạp sau khu mỏ cũng sẽ là chưa rõ
+        if (mine.needsRecount()) {
+            discard(mine);
+            return;
+        }
+        FileConfiguration config = new YamlConfiguration();
+        config.set("volume", mine.getRegion().volume());
+        config.set("tracked", mine.isTracked());
+        config.set("mined", longs(mine.getMined()));
+        config.set("lazy", mine.isLazy());
+        if (mine.isLazy()) {
+            config.set("reveal_seed", mine.getRevealSeed());
+            config.set("revealed", longs(mine.getRevealed()));
+        }
+        folder.mkdirs();
+        try {
+            config.save(fileFor(mine));
+        } catch (IOException e) {
+            logger.warning("Không thể lưu trạng thái khu mỏ " + mine.getWorldName() + ": " + e.getMessage());
+        }
+    }
+
+    // Khu mỏ vừa được sinh mới: trạng thái cũ cùng tên không còn đúng
+    public void discard(Mine mine) {
+        fileFor(mine).delete();
+    }
+
+    private static BitSet bits(List<Long> words) {
+        long[] array = new long[words.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = words.get(i);
+        }
+        return BitSet.valueOf(array);
+    }
+
+    private static List<Long> longs(BitSet bits) {
+        return Arrays.stream(bits.toLongArray()).boxed().toList();
+    }
+}
@@ -0,0 +1,136 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.util.MineChunkGenerator;
+import org.bukkit.Bukkit;
+import org.bukkit.GameRule;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.WorldInitEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quản lý vòng đời thế giới mỏ: áp cấu hình nhẹ khi thế giới được nạp, unload
+ * thế giới không ai dùng sau thời gian chờ hoặc khi vượt giới hạn (LRU), và nạp
+ * lại khi người chơi cần.
+ */
+public class MineWorldLifecycle implements Listener {
+
+    private static final String WORLD_PREFIX = "mine_";
+
+    private final MetaMiner plugin;
+    private final long idleMillis;
+    private final int maxLoaded;
+    // Thứ tự truy cập: phần tử đầu là thế giới lâu nhất chưa dùng
+    private final LinkedHashMap<String, Long> lastAccess = new LinkedHashMap<>(16, 0.75f, true);
+
+    public MineWorldLifecycle(MetaMiner plugin, int idleMinutes, int maxLoaded) {
+        this.plugin = plugin;
+        this.idleMillis = idleMinutes * 60_000L;
+        this.maxLoaded = maxLoaded;
+    }
+
+    public void start() {
+        Bukkit.getScheduler().runTaskTimer(plugin, this::sweep, 1200L, 1200L);
+    }
+
+    private static boolean isMineWorld(String name) {
+        return name.startsWith(WORLD_PREFIX) || name.equals(MineWorldPool.TEMPLATE_NAME)
+                || name.equals(MineManager.PLOT_WORLD);
+    }
+
+    // Thế giới mỏ không cần giữ spawn, sinh mob, random tick hay chu kỳ ngày đêm
+    @EventHandler
+    public void onWorldInit(WorldInitEvent event) {
+        World world = event.getWorld();
+        if (!isMineWorld(world.getName())) return;
+
+        world.setKeepSpawnInMemory(false);
+        world.setSpawnFlags(false, false);
+        world.setGameRule(GameRule.RANDOM_TICK_SPEED, 0);
+        world.setGameRule(GameRule.DO_DAYLIGHT_CYCLE, false);
+        world.setGameRule(GameRule.DO_MOB_SPAWNING, false);
+        world.setGameRule(GameRule.DO_WEATHER_CYCLE, false);
+        touch(world.getName());
+    }
+
+    @EventHandler
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        touch(event.getFrom().getName());
+        touch(event.getPlayer().getWorld().getName());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        touch(event.getPlayer().getWorld().getName());
+    }
+
+    public void touch(String worldName) {
+        if (worldName.startsWith(WORLD_PREFIX)) {
+            lastAccess.put(worldName, System.currentTimeMillis());
+        }
+    }
+
+    // Trả về thế giới đã nạp, nạp lại từ đĩa nếu đã bị unload; null nếu chưa từng được tạo
+    public World getOrLoad(String worldName) {
+        World world = Bukkit.getWorld(worldName);
+        if (world == null && new File(Bukkit.getWorldContainer(), worldName).exists()) {
+            world = new WorldCreator(worldName)
+                    .generator(new MineChunkGenerator(plugin.getConfigManager(), plugin.getMineManager().getRegion()))
+                    .createWorld();
+        }
+        if (world != null) touch(worldName);
+        return world;
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        for (World world : Bukkit.getWorlds()) {
+            if (world.getName().startsWith(WORLD_PREFIX)) {
+                loaded++;
+                // putIfAbsent tính là một lần truy cập và sẽ đẩy thế giới xuống cuối thứ tự LRU
+                if (!lastAccess.containsKey(world.getName())) lastAccess.put(world.getName(), now);
+            }
+        }
+
+        // Chép ra trước vì unload sẽ gỡ phần tử khỏi lastAccess
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(lastAccess.entrySet());
+        for (Map.Entry<String, Long> entry : entries) {
+            String name = entry.getKey();
+            // Chỉ thế giới thật sự đã unload mới được trừ khỏi số đang nạp
+            boolean idle = now - entry.getValue() >= idleMillis;
+            boolean overCap = loaded > maxLoaded;
+            if (!idle && !overCap) continue;
+
+            World world = Bukkit.getWorld(name);
+            if (world == null) {
+                lastAccess.remove(name);
+                continue;
+            }
+            if (!canUnload(world)) continue;
+
+            if (Bukkit.unloadWorld(world, true)) {
+                loaded--;
+                lastAccess.remove(name);
+                plugin.getMineManager().forget(name);
+                plugin.getLogger().info("Đã unload thế giới đào không hoạt động: " + name);
+            }
+        }
+    }
+
+    private boolean canUnload(World world) {
+        if (!world.getPlayers().isEmpty()) return false;
+        // Đang có block chờ đặt (reset dở) thì giữ lại
+        return !plugin.getPlacementScheduler().hasPendingWork(world);
+    }
+}
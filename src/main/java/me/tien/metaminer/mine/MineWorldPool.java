@@ -0,0 +1,232 @@
+package me.tien.metaminer.mine;
+
+import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.util.MineChunkGenerator;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.WorldType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Pool các bản sao thế giới mỏ đã sinh sẵn. Bản sao được chép từ thế giới mẫu
+ * ngoài main thread; khi người chơi mới vào chỉ cần đổi tên thư mục (cũng ngoài
+ * main thread), createWorld trên main thread rồi sinh lại thân quặng theo seed
+ * của người chơi. Thế giới mẫu được dựng lại khi hình học khu mỏ hoặc bảng
+ * quặng thay đổi.
+ */
+public class MineWorldPool {
+
+    public static final String TEMPLATE_NAME = "metaminer_template";
+    // Khoá cấu hình mà thế giới mẫu (và các bản sao) được dựng theo
+    private static final String KEY_FILE = "metaminer.key";
+
+    private final MetaMiner plugin;
+    private final int size;
+    private final File poolFolder;
+    private final File templateFolder;
+    private final ConcurrentLinkedQueue<File> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger copying = new AtomicInteger();
+
+    public MineWorldPool(MetaMiner plugin, int size) {
+        this.plugin = plugin;
+        this.size = size;
+        this.poolFolder = new File(plugin.getDataFolder(), "world_pool");
+        this.templateFolder = new File(Bukkit.getWorldContainer(), TEMPLATE_NAME);
+    }
+
+    public void start() {
+        if (size <= 0) return;
+
+        String key = templateKey();
+        if (templateFolder.exists() && !key.equals(readKey(templateFolder))) {
+            plugin.getLogger().info("Cấu hình khu mỏ đã thay đổi, dựng lại thế giới mẫu...");
+            deleteTree(templateFolder.toPath());
+        }
+        if (!templateFolder.exists()) {
+            createTemplate(key);
+        }
+        poolFolder.mkdirs();
+
+        // Các bản sao hoàn chỉnh, cùng cấu hình từ lần chạy trước; thư mục tạm dở dang và bản cũ bị xoá
+        File[] existing = poolFolder.listFiles(File::isDirectory);
+        if (existing != null) {
+            for (File folder : existing) {
+                if (folder.getName().startsWith("pool_") && key.equals(readKey(folder))) {
+                    ready.add(folder);
+                } else {
+                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> deleteTree(folder.toPath()));
+                }
+            }
+        }
+        refill();
+    }
+
+    private String templateKey() {
+        MineRegion region = plugin.getMineManager().getRegion();
+        String key = region.getOriginX() + "," + region.getOriginY() + "," + region.getOriginZ() + ","
+                + region.getSizeX() + "," + region.getSizeY() + "," + region.getSizeZ() + "," + region.getHeadroom()
+                + new TreeMap<>(plugin.getConfigManager().getOreRates());
+        return Integer.toHexString(key.hashCode());
+    }
+
+    private static String readKey(File worldFolder) {
+        try {
+            return Files.readString(new File(worldFolder, KEY_FILE).toPath(), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Sinh thế giới mẫu một lần cho mỗi cấu hình, sau đó lưu và unload
+    private void createTemplate(String key) {
+        plugin.getLogger().info("Đang tạo thế giới mẫu cho pool khu mỏ...");
+        World template = new WorldCreator(TEMPLATE_NAME)
+                .environment(World.Environment.NORMAL)
+                .generator(new MineChunkGenerator(plugin.getConfigManager(), plugin.getMineManager().getRegion()))
+                .type(WorldType.FLAT)
+                .createWorld();
+        if (template == null) {
+            plugin.getLogger().severe("Không thể tạo thế giới mẫu cho pool khu mỏ!");
+            return;
+        }
+        // Mọi chunk chứa khu mỏ kèm vỏ bedrock
+        MineRegion region = plugin.getMineManager().getRegion();
+        for (int cx = Math.floorDiv(region.getOriginX() - 1, 16); cx <= Math.floorDiv(region.getOriginX() + region.getSizeX(), 16); cx++) {
+            for (int cz = Math.floorDiv(region.getOriginZ() - 1, 16); cz <= Math.floorDiv(region.getOriginZ() + region.getSizeZ(), 16); cz++) {
+                template.getChunkAt(cx, cz);
+            }
+        }
+        template.save();
+        Bukkit.unloadWorld(template, true);
+        try {
+            Files.writeString(new File(templateFolder, KEY_FILE).toPath(), key, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Không thể ghi khoá cấu hình của thế giới mẫu: " + e.getMessage());
+        }
+    }
+
+    public int getReadyCount() {
+        return ready.size();
+    }
+
+    // Trả về null nếu pool rỗng. Future luôn hoàn thành trên main thread: thế giới khi đã nạp
+    // và thân quặng đã được sinh lại theo seed; null nếu không chuyển được thư mục (đã dọn phần
+    // chép dở); lỗi nếu createWorld ném ngoại lệ
+    public CompletableFuture<World> claim(String worldName, long seed) {
+        File pooled = ready.poll();
+        if (pooled == null) return null;
+
+        CompletableFuture<World> future = new CompletableFuture<>();
+        File target = new File(Bukkit.getWorldContainer(), worldName);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                moveTree(pooled.toPath(), target.toPath());
+            } catch (IOException e) {
+                plugin.getLogger().warning("Không thể chuyển thế giới từ pool: " + e.getMessage());
+                // Bản chép dở không được để lại, nếu không lần tạo thế giới sau sẽ nạp nó
+                deleteTree(target.toPath());
+                Bukkit.getScheduler().runTask(plugin, () -> future.complete(null));
+                return;
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                MineRegion region = plugin.getMineManager().getRegion();
+                World world;
+                try {
+                    world = new WorldCreator(worldName)
+                            .generator(new MineChunkGenerator(plugin.getConfigManager(), region))
+                            .createWorld();
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                if (world == null) {
+                    future.complete(null);
+                    return;
+                }
+                // Mọi bản sao có chung bố cục của thế giới mẫu: ghi lại thân quặng giống hệt
+                // thế giới sinh mới với seed này
+                MineLayout ores = MineChunkGenerator.oreBody(seed, region, plugin.getConfigManager().getOreSampler());
+                plugin.getPlacementScheduler().submit(null, world, region.getOriginX(), region.getOriginY(), region.getOriginZ(), ores, null)
+                        .whenComplete((v, error) -> {
+                            if (error != null) {
+                                plugin.getLogger().warning("Không thể sinh lại quặng cho " + worldName + ": " + error);
+                            }
+                            future.complete(world);
+                        });
+            });
+        });
+        refill();
+        return future;
+    }
+
+    private void refill() {
+        if (!templateFolder.exists()) return;
+
+        while (ready.size() + copying.get() < size) {
+            copying.incrementAndGet();
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                String id = UUID.randomUUID().toString();
+                Path temp = poolFolder.toPath().resolve("tmp_" + id);
+                Path done = poolFolder.toPath().resolve("pool_" + id);
+                try {
+                    copyTree(templateFolder.toPath(), temp);
+                    Files.move(temp, done, StandardCopyOption.ATOMIC_MOVE);
+                    ready.add(done.toFile());
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Không thể sao chép thế giới mẫu: " + e.getMessage());
+                    deleteTree(temp);
+                } finally {
+                    copying.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private static void copyTree(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String name = path.getFileName().toString();
+                // uid.dat bị bỏ để mỗi bản sao có UID riêng
+                if (name.equals("session.lock") || name.equals("uid.dat")) continue;
+
+                Path dest = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(dest);
+                } else {
+                    Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static void moveTree(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException | DirectoryNotEmptyException e) {
+            // Khác ổ đĩa: chép rồi xoá
+            copyTree(source, target);
+            deleteTree(source);
+        }
+    }
+
+    private static void deleteTree(Path root) {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.tien.metaminer.mine;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Cấp ô lưới (plot) trong thế giới mỏ dùng chung: mỗi UUID nhận một chỉ số ô
+ * cố định, chỉ số được đánh theo hàng (index = row * columns + column).
+ * Tra ô từ toạ độ là phép chia, không cần duyệt. plots.yml được ghi trên luồng
+ * async, chỉ bản chụp mới nhất được ghi.
+ */
+public class PlotAllocator {
+
+    private final Plugin plugin;
+    private final int plotSize;
+    private final int columns;
+    private final File file;
+    private final Logger logger;
+    private final Map<UUID, Integer> plotByOwner = new HashMap<>();
+    private int nextPlot;
+
+    // version chỉ đổi trên main thread; writtenVersion được giữ bởi writeLock
+    private final Object writeLock = new Object();
+    private long version;
+    private long writtenVersion;
+
+    public PlotAllocator(Plugin plugin, File file, int plotSize, int columns) {
+        this.plugin = plugin;
+        this.file = file;
+        this.plotSize = plotSize;
+        this.columns = columns;
+        this.logger = plugin.getLogger();
+    }
+
+    public void load() {
+        if (!file.exists()) return;
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        nextPlot = config.getInt("next", 0);
+        if (config.isConfigurationSection("plots")) {
+            for (String key : config.getConfigurationSection("plots").getKeys(false)) {
+                try {
+                    plotByOwner.put(UUID.fromString(key), config.getInt("plots." + key));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("UUID không hợp lệ trong plots.yml: " + key);
+                }
+            }
+        }
+    }
+
+    // Chụp dữ liệu trên main thread, ghi file trên luồng async
+    private void save() {
+        String data = snapshot();
+        long saveVersion = ++version;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> write(data, saveVersion));
+    }
+
+    // Khi tắt plugin: tác vụ async có thể chưa kịp chạy, ghi đồng bộ bản mới nhất
+    public void flush() {
+        if (version > 0) write(snapshot(), version);
+    }
+
+    private String snapshot() {
+        FileConfiguration config = new YamlConfiguration();
+        config.set("next", nextPlot);
+        for (Map.Entry<UUID, Integer> entry : plotByOwner.entrySet()) {
+            config.set("plots." + entry.getKey(), entry.getValue());
+        }
+        return config.saveToString();
+    }
+
+    private void write(String data, long saveVersion) {
+        synchronized (writeLock) {
+            // Một bản mới hơn đã được ghi, bản này đã cũ
+            if (saveVersion <= writtenVersion) return;
+            try {
+                file.getParentFile().mkdirs();
+                Files.writeString(file.toPath(), data, StandardCharsets.UTF_8);
+                writtenVersion = saveVersion;
+            } catch (IOException e) {
+                logger.warning("Không thể lưu plots.yml: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getPlot(UUID owner) {
+        return plotByOwner.getOrDefault(owner, -1);
+    }
+
+    public int allocate(UUID owner) {
+        Integer existing = plotByOwner.get(owner);
+        if (existing != null) return existing;
+
+        int plot = nextPlot++;
+        plotByOwner.put(owner, plot);
+        save();
+        return plot;
+    }
+
+    // Chỉ số ô chứa toạ độ (x, z), -1 nếu nằm ngoài lưới
+    public int plotAt(int x, int z) {
+        int column = Math.floorDiv(x, plotSize);
+        int row = Math.floorDiv(z, plotSize);
+        if (column < 0 || column >= columns || row < 0) return -1;
+        return row * columns + column;
+    }
+
+    // Góc của ô; khu mỏ được đặt giữa ô bằng MineRegion.inCell
+    public int cellX(int plot) {
+        return (plot % columns) * plotSize;
+    }
+
+    public int cellZ(int plot) {
+        return (plot / columns) * plotSize;
+    }
+
+    public int getAllocatedCount() {
+        return nextPlot;
+    }
+
+    public int getPlotSize() {
+        return plotSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,98 @@
+package me.tien.metaminer.mine;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chỉ mục các vùng block được bảo vệ tạm thời (vd. lớp kính khi reset), theo
+ * thế giới rồi theo chunk. Mỗi vùng là một lớp phẳng hình chữ nhật, được ghi vào
+ * mọi chunk nó phủ; tra một block chỉ xét các vùng trong chunk của block đó.
+ * Vùng bị gỡ khỏi chỉ mục ngay khi không còn cần bảo vệ.
+ */
+public class ProtectionIndex {
+
+    private final Map<String, Map<Long, List<Area>>> areasByWorld = new HashMap<>();
+
+    // null nếu thế giới chưa được nạp (không có gì để bảo vệ)
+    public Area protect(World world, int minX, int y, int minZ, int sizeX, int sizeZ) {
+        if (world == null) return null;
+
+        Area area = new Area(world.getName(), minX, y, minZ, sizeX, sizeZ);
+        Map<Long, List<Area>> chunks = areasByWorld.computeIfAbsent(area.worldName, name -> new HashMap<>());
+        for (int cx = minX >> 4; cx <= (minX + sizeX - 1) >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= (minZ + sizeZ - 1) >> 4; cz++) {
+                chunks.computeIfAbsent(chunkKey(cx, cz), key -> new ArrayList<>(1)).add(area);
+            }
+        }
+        return area;
+    }
+
+    public void release(Area area) {
+        if (area == null) return;
+        Map<Long, List<Area>> chunks = areasByWorld.get(area.worldName);
+        if (chunks == null) return;
+
+        for (int cx = area.minX >> 4; cx <= (area.minX + area.sizeX - 1) >> 4; cx++) {
+            for (int cz = area.minZ >> 4; cz <= (area.minZ + area.sizeZ - 1) >> 4; cz++) {
+                long key = chunkKey(cx, cz);
+                List<Area> areas = chunks.get(key);
+                if (areas == null) continue;
+                areas.remove(area);
+                if (areas.isEmpty()) chunks.remove(key);
+            }
+        }
+        if (chunks.isEmpty()) areasByWorld.remove(area.worldName);
+    }
+
+    public boolean isProtected(Block block) {
+        // Không có vùng bảo vệ nào: thoát ngay, không tra gì thêm
+        if (areasByWorld.isEmpty()) return false;
+        Map<Long, List<Area>> chunks = areasByWorld.get(block.getWorld().getName());
+        if (chunks == null) return false;
+
+        int x = block.getX();
+        int z = block.getZ();
+        List<Area> areas = chunks.get(chunkKey(x >> 4, z >> 4));
+        if (areas == null) return false;
+
+        int y = block.getY();
+        for (int i = 0; i < areas.size(); i++) {
+            if (areas.get(i).contains(x, y, z)) return true;
+        }
+        return false;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static final class Area {
+        private final String worldName;
+        private final int minX;
+        private final int y;
+        private final int minZ;
+        private final int sizeX;
+        private final int sizeZ;
+
+        private Area(String worldName, int minX, int y, int minZ, int sizeX, int sizeZ) {
+            this.worldName = worldName;
+            this.minX = minX;
+            this.y = y;
+            this.minZ = minZ;
+            this.sizeX = sizeX;
+            this.sizeZ = sizeZ;
+        }
+
+        private boolean contains(int x, int y, int z) {
+            if (y != this.y) return false;
+            int dx = x - minX;
+            int dz = z - minZ;
+            return dx >= 0 && dx < sizeX && dz >= 0 && dz < sizeZ;
+        }
+    }
+}
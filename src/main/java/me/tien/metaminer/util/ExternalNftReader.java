@@ -1,91 +1,140 @@
 package me.tien.metaminer.util;
 
 import me.tien.metaminer.MetaMiner;
+import me.tien.metaminer.config.ConfigSnapshot;
+import me.tien.metaminer.config.NftDropTable;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class ExternalNftReader {
 
-    private static final File nftPluginFolder = new File("plugins/NFTPlugin/metadata");
+    public static final File nftPluginFolder = new File("plugins/NFTPlugin/metadata");
+
+    // Số lần đào liên tiếp không rơi NFT của từng người chơi
+    private static final Map<UUID, Integer> pityCounters = new HashMap<>();
+
+    // breaks: số block người chơi đã đào trong tick, mỗi block một lần quay
+    public static void tryDropNFTs(Player player, MetaMiner plugin, int breaks) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        // Mẫu NFT đã được dựng sẵn trong NftRegistry, không đọc đĩa trên main thread
+        Map<String, ItemStack> templates = plugin.getNftRegistry().getTemplates();
+        NftDropTable table = plugin.getNftRegistry().dropTable(config.getNftDropTable(), templates);
+        if (table.isEmpty()) return;
+
+        // Một lần quay cho cả bảng; đủ số lần trượt theo cấu hình pity thì chắc chắn rơi
+        UUID uuid = player.getUniqueId();
+        int misses = pityCounters.getOrDefault(uuid, 0);
+        int pityBreaks = config.getNftPityBreaks();
+        RandomGenerator random = ThreadLocalRandom.current();
+        List<ItemStack> dropped = null;
+
+        for (int i = 0; i < breaks; i++) {
+            String name = pityBreaks > 0 && misses + 1 >= pityBreaks ? table.rollGuaranteed(random) : table.roll(random);
+            ItemStack template = name == null ? null : templates.get(name);
+            if (template == null) {
+                misses++;
+                continue;
+            }
+            misses = 0;
+            if (dropped == null) dropped = new ArrayList<>(1);
+            dropped.add(template.clone());
+        }
 
-    public static void tryDropNFTs(Player player, MetaMiner plugin) {
-        FileConfiguration config = plugin.getConfig();
-        if (!nftPluginFolder.exists()) return;
+        if (misses == 0) {
+            pityCounters.remove(uuid);
+        } else {
+            pityCounters.put(uuid, misses);
+        }
+        if (dropped == null) return;
 
-        File[] files = nftPluginFolder.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null) return;
+        player.getInventory().addItem(dropped.toArray(new ItemStack[0]));
+        plugin.getCapacityTracker().markDirty(player);
+        for (ItemStack item : dropped) {
+            player.sendMessage("§aBạn vừa nhận được NFT: §6" + item.getItemMeta().getDisplayName());
+        }
+    }
 
-        for (File file : files) {
-            String name = file.getName().replace(".json", "");
-            double chance = config.getDouble("nft_drops." + name, 0.0);
+    public static void resetPity(UUID uuid) {
+        pityCounters.remove(uuid);
+    }
 
-            if (Math.random() * 100 < chance) {
-                ItemStack item = loadNft(file);
-                if (item != null) {
-                    player.getInventory().addItem(item);
-                    player.sendMessage("§aBạn vừa nhận được NFT: §6" + item.getItemMeta().getDisplayName());
-                }
-            }
-        }
+    // Nội dung file NFT ở dạng dữ liệu thuần, đọc được trên luồng bất kỳ
+    record NftData(Material material, String name, List<String> lore, Integer customModelData,
+                   boolean unbreakable, Map<String, Integer> enchantments) {
     }
 
-    private static ItemStack loadNft(File file) {
+    // Gọi từ luồng theo dõi của NftRegistry: chỉ đọc JSON, không đụng tới API Bukkit
+    static NftData parseNft(Path file) {
         try {
-            String raw = new String(Files.readAllBytes(file.toPath()));
+            String raw = new String(Files.readAllBytes(file));
             JSONObject json = new JSONObject(raw);
             JSONObject reward = json.getJSONObject("quest").getJSONObject("reward");
 
             Material mat = Material.valueOf(reward.getString("item"));
-            ItemStack item = new ItemStack(mat);
-            ItemMeta meta = item.getItemMeta();
-
-            meta.setDisplayName(reward.getString("name"));
 
+            List<String> lore = new ArrayList<>();
             if (reward.has("lore")) {
                 JSONArray loreArray = reward.getJSONArray("lore");
-                List<String> lore = new ArrayList<>();
                 for (int i = 0; i < loreArray.length(); i++) {
                     lore.add(loreArray.getString(i));
                 }
-                meta.setLore(lore);
             }
 
-            if (reward.has("custom_model_data")) {
-                meta.setCustomModelData(reward.getInt("custom_model_data"));
-            }
-
-            if (reward.optBoolean("unbreakable", false)) {
-                meta.setUnbreakable(true);
-            }
-
-            item.setItemMeta(meta);
+            Integer customModelData = reward.has("custom_model_data") ? reward.getInt("custom_model_data") : null;
 
+            Map<String, Integer> enchantments = new LinkedHashMap<>();
             if (reward.has("enchantments")) {
                 JSONArray ench = reward.getJSONArray("enchantments");
                 for (int i = 0; i < ench.length(); i++) {
                     String[] parts = ench.getString(i).split(":");
-                    Enchantment enchant = Enchantment.getByName(parts[0]);
-                    if (enchant != null) {
-                        item.addUnsafeEnchantment(enchant, Integer.parseInt(parts[1]));
-                    }
+                    enchantments.put(parts[0], Integer.parseInt(parts[1]));
                 }
             }
 
-            return item;
+            return new NftData(mat, reward.getString("name"), lore, customModelData,
+                    reward.optBoolean("unbreakable", false), enchantments);
         } catch (Exception e) {
-            Bukkit.getLogger().warning("[MetaMiner] Không thể đọc NFT từ " + file.getName() + ": " + e.getMessage());
+            Bukkit.getLogger().warning("[MetaMiner] Không thể đọc NFT từ " + file.getFileName() + ": " + e.getMessage());
             return null;
         }
     }
+
+    // Dựng mẫu ItemStack từ dữ liệu đã đọc; chỉ gọi trên main thread
+    static ItemStack buildNft(NftData data) {
+        ItemStack item = new ItemStack(data.material());
+        ItemMeta meta = item.getItemMeta();
+
+        meta.setDisplayName(data.name());
+        if (!data.lore().isEmpty()) {
+            meta.setLore(data.lore());
+        }
+        if (data.customModelData() != null) {
+            meta.setCustomModelData(data.customModelData());
+        }
+        if (data.unbreakable()) {
+            meta.setUnbreakable(true);
+        }
+        item.setItemMeta(meta);
+
+        for (Map.Entry<String, Integer> entry : data.enchantments().entrySet()) {
+            Enchantment enchant = Enchantment.getByName(entry.getKey());
+            if (enchant != null) {
+                item.addUnsafeEnchantment(enchant, entry.getValue());
+            }
+        }
+        return item;
+    }
 }
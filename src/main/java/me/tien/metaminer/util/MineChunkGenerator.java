@@ -0,0 +1,144 @@
+package me.tien.metaminer.util;
+
+import me.tien.metaminer.config.ConfigManager;
+import me.tien.metaminer.config.OreSampler;
+import me.tien.metaminer.mine.MineLayout;
+import me.tien.metaminer.mine.MineRegion;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.generator.ChunkGenerator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generator cho thế giới đào: ghi sẵn vỏ bedrock, các lớp quặng và khoảng trống
+ * vào ChunkData ngay khi chunk được tạo, nên không cần setType từng block sau đó.
+ */
+public class MineChunkGenerator extends ChunkGenerator {
+
+    private static final int OUTSIDE = Integer.MIN_VALUE;
+
+    private final ConfigManager configManager;
+    // Chế độ lưới: góc khu mỏ tính trong ô (0, 0)
+    private final MineRegion region;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    // Chế độ lưới plot: mỗi ô plotSize × plotSize có một khu mỏ ở giữa (0 = một khu mỏ duy nhất)
+    private final int plotSize;
+    private final int columns;
+
+    public MineChunkGenerator(ConfigManager configManager, MineRegion region) {
+        this(configManager, region, 0, 0);
+    }
+
+    private MineChunkGenerator(ConfigManager configManager, MineRegion region, int plotSize, int columns) {
+        this.configManager = configManager;
+        this.region = region;
+        this.originX = region.getOriginX();
+        this.originY = region.getOriginY();
+        this.originZ = region.getOriginZ();
+        this.plotSize = plotSize;
+        this.columns = columns;
+    }
+
+    // Generator cho thế giới plot dùng chung; vị trí khu mỏ trong ô khớp với MineManager
+    public static MineChunkGenerator grid(ConfigManager configManager, MineRegion region, int plotSize, int columns) {
+        return new MineChunkGenerator(configManager, region.inCell(0, 0, plotSize), plotSize, columns);
+    }
+
+    // Toạ độ tương đối so với góc khu mỏ gần nhất, OUTSIDE nếu nằm ngoài lưới
+    private int relativeX(int worldX) {
+        if (plotSize == 0) return worldX - originX;
+        int column = Math.floorDiv(worldX, plotSize);
+        if (column < 0 || column >= columns) return OUTSIDE;
+        return worldX - column * plotSize - originX;
+    }
+
+    private int relativeZ(int worldZ) {
+        if (plotSize == 0) return worldZ - originZ;
+        int row = Math.floorDiv(worldZ, plotSize);
+        if (row < 0) return OUTSIDE;
+        return worldZ - row * plotSize - originZ;
+    }
+
+    @Override
+    public @NotNull ChunkData generateChunkData(@NotNull World world, @NotNull Random random, int chunkX, int chunkZ, @NotNull BiomeGrid biome) {
+        ChunkData data = createChunkData(world);
+
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+
+        int maxX = region.getSizeX();
+        int maxZ = region.getSizeZ();
+        int oreTop = region.getSizeY() - 1;
+        int shellTop = region.getShellTop();
+
+        // Chunk nằm ngoài khu mỏ thì giữ nguyên trống
+        if (plotSize == 0 && (baseX + 15 < originX - 1 || baseX > originX + maxX
+                || baseZ + 15 < originZ - 1 || baseZ > originZ + maxZ)) {
+            return data;
+        }
+
+        RandomGenerator oreRandom = chunkOreRandom(world.getSeed(), chunkX, chunkZ);
+        OreSampler sampler = configManager.getOreSampler();
+
+        for (int lx = 0; lx < 16; lx++) {
+            int x = relativeX(baseX + lx);
+            if (x < -1 || x > maxX) continue;
+
+            for (int lz = 0; lz < 16; lz++) {
+                int z = relativeZ(baseZ + lz);
+                if (z < -1 || z > maxZ) continue;
+
+                if (region.isShell(x, 0, z)) {
+                    data.setRegion(lx, originY - 1, lz, lx + 1, originY + shellTop + 1, lz + 1, Material.BEDROCK);
+                    continue;
+                }
+
+                data.setBlock(lx, originY - 1, lz, Material.BEDROCK);
+                for (int y = 0; y <= oreTop; y++) {
+                    data.setBlock(lx, originY + y, lz, sampler.sample(oreRandom));
+                }
+                // Phần trên mặt quặng là không khí, ChunkData mặc định đã trống
+            }
+        }
+        return data;
+    }
+
+    // Seed theo thế giới và chunk để bố cục tái tạo được từ seed của khu mỏ
+    private static RandomGenerator chunkOreRandom(long seed, int chunkX, int chunkZ) {
+        return ConfigManager.newOreRandom(seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
+    }
+
+    // Thân quặng mà generator sinh cho một thế giới riêng có seed này, đánh chỉ số theo region
+    public static MineLayout oreBody(long seed, MineRegion region, OreSampler sampler) {
+        int sizeX = region.getSizeX();
+        int sizeY = region.getSizeY();
+        int sizeZ = region.getSizeZ();
+        MineLayout layout = MineLayout.acquire(sizeX, sizeY, sizeZ);
+
+        // Cùng thứ tự lấy mẫu với generateChunkData; cột vỏ bedrock không tiêu thụ số ngẫu nhiên
+        for (int chunkX = Math.floorDiv(region.getOriginX(), 16); chunkX <= Math.floorDiv(region.getOriginX() + sizeX - 1, 16); chunkX++) {
+            for (int chunkZ = Math.floorDiv(region.getOriginZ(), 16); chunkZ <= Math.floorDiv(region.getOriginZ() + sizeZ - 1, 16); chunkZ++) {
+                RandomGenerator oreRandom = chunkOreRandom(seed, chunkX, chunkZ);
+                for (int lx = 0; lx < 16; lx++) {
+                    int x = (chunkX << 4) + lx - region.getOriginX();
+                    if (x < 0 || x >= sizeX) continue;
+
+                    for (int lz = 0; lz < 16; lz++) {
+                        int z = (chunkZ << 4) + lz - region.getOriginZ();
+                        if (z < 0 || z >= sizeZ) continue;
+
+                        for (int y = 0; y < sizeY; y++) {
+                            layout.set(region.index(x, y, z), sampler.sample(oreRandom));
+                        }
+                    }
+                }
+            }
+        }
+        return layout;
+    }
+}
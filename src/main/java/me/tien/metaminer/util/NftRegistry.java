@@ -0,0 +1,168 @@
+package me.tien.metaminer.util;
+
+import me.tien.metaminer.config.NftDropTable;
+import me.tien.metaminer.util.ExternalNftReader.NftData;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bộ nhớ đệm các mẫu NFT (ItemStack dựng sẵn) đọc từ thư mục metadata của
+ * NFTPlugin. Thư mục được đọc một lần khi bật plugin; sau đó một luồng nền
+ * theo dõi thay đổi bằng WatchService và chỉ đọc lại file bị sửa thành dữ liệu
+ * thuần; ItemStack được dựng và cả bảng được thay một lần trên main thread, nên
+ * main thread không bao giờ đọc đĩa và luồng nền không đụng tới API Bukkit.
+ */
+public class NftRegistry {
+
+    private final Plugin plugin;
+    private final Path folder;
+    private volatile Map<String, ItemStack> templates = Collections.emptyMap();
+    // Dữ liệu đã đọc của từng file; sau start() chỉ luồng theo dõi dùng
+    private Map<String, NftData> parsed = Collections.emptyMap();
+    // Bảng rơi đã lọc theo mẫu, kèm bảng cấu hình và tập mẫu đã dùng để dựng nó (main thread)
+    private NftDropTable filteredFrom;
+    private Map<String, ItemStack> filteredWith;
+    private NftDropTable filtered;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public NftRegistry(Plugin plugin, File folder) {
+        this.plugin = plugin;
+        this.folder = folder.toPath();
+    }
+
+    public void start() {
+        if (!Files.isDirectory(folder)) {
+            plugin.getLogger().info("Không tìm thấy thư mục NFT: " + folder + ", bỏ qua NFT drop");
+            return;
+        }
+        Map<String, NftData> loaded = parseAll();
+        if (loaded != null) {
+            parsed = loaded;
+            publish(loaded);
+        }
+
+        try {
+            watchService = folder.getFileSystem().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Không thể theo dõi thư mục NFT: " + e.getMessage());
+            return;
+        }
+        watcher = new Thread(this::watch, "MetaMiner-NftWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    // Bảng bất biến; phần tử là mẫu dùng chung, phải clone() trước khi trao cho người chơi
+    public Map<String, ItemStack> getTemplates() {
+        return templates;
+    }
+
+    // Bảng rơi chỉ gồm NFT có mẫu trong current, để NFT cấu hình mà thiếu file không
+    // được chọn (kể cả khi pity bảo đảm rơi). Dựng lại khi reload cấu hình hoặc mẫu thay đổi
+    public NftDropTable dropTable(NftDropTable configured, Map<String, ItemStack> current) {
+        if (configured != filteredFrom || current != filteredWith) {
+            filtered = configured.retain(current.keySet());
+            filteredFrom = configured;
+            filteredWith = current;
+            if (filtered.size() < configured.size()) {
+                plugin.getLogger().warning((configured.size() - filtered.size())
+                        + " NFT trong config.yml không có file mẫu, bỏ khỏi bảng rơi");
+            }
+        }
+        return filtered;
+    }
+
+    // null nếu không đọc được thư mục
+    private Map<String, NftData> parseAll() {
+        Map<String, NftData> loaded = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.json")) {
+            for (Path file : files) {
+                NftData data = ExternalNftReader.parseNft(file);
+                if (data != null) loaded.put(nameOf(file), data);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Không thể đọc thư mục NFT: " + e.getMessage());
+            return null;
+        }
+        return loaded;
+    }
+
+    // Gọi trên main thread: dựng lại mọi mẫu rồi thay cả bảng một lần
+    private void publish(Map<String, NftData> data) {
+        Map<String, ItemStack> built = new HashMap<>();
+        data.forEach((name, nft) -> built.put(name, ExternalNftReader.buildNft(nft)));
+        templates = Collections.unmodifiableMap(built);
+        plugin.getLogger().info("Đã nạp " + built.size() + " mẫu NFT");
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        while (service != null) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean overflow = false;
+            Map<String, NftData> updated = new HashMap<>(parsed);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                Path file = folder.resolve((Path) event.context());
+                if (!file.getFileName().toString().endsWith(".json")) continue;
+
+                String name = nameOf(file);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    updated.remove(name);
+                } else {
+                    // File đang ghi dở sẽ đọc lỗi: giữ mẫu cũ, lần MODIFY sau sẽ đọc lại
+                    NftData data = ExternalNftReader.parseNft(file);
+                    if (data != null) updated.put(name, data);
+                }
+            }
+
+            if (overflow) updated = parseAll();
+            if (updated != null) {
+                // Luồng theo dõi giữ bản đã đọc để so lần sau; bảng mẫu được dựng trên main thread
+                Map<String, NftData> snapshot = Collections.unmodifiableMap(updated);
+                parsed = snapshot;
+                if (plugin.isEnabled()) Bukkit.getScheduler().runTask(plugin, () -> publish(snapshot));
+            }
+            if (!key.reset()) return;
+        }
+    }
+
+    private static String nameOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - ".json".length());
+    }
+}
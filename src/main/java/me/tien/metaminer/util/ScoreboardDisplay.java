@@ -1,33 +1,35 @@
 package me.tien.metaminer.util;
 
 import me.tien.metaminer.data.PlayerDataManager;
+import me.tien.metaminer.data.PlayerProfile;
+import me.tien.metaminer.data.Upgrade;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.scoreboard.*;
 
-import java.util.UUID;
-
 public class ScoreboardDisplay {
 
+    private static final String OBJECTIVE = "stats";
+
     public static void show(Player player) {
         ScoreboardManager manager = Bukkit.getScoreboardManager();
         if (manager == null) return;
 
         Scoreboard board = manager.getNewScoreboard();
 
-        Objective objective = board.registerNewObjective("stats", "dummy", ChatColor.GOLD + "§lĐÀO NFT");
+        Objective objective = board.registerNewObjective(OBJECTIVE, "dummy", ChatColor.GOLD + "§lĐÀO NFT");
         objective.setDisplaySlot(DisplaySlot.SIDEBAR);
 
-        UUID uuid = player.getUniqueId();
+        PlayerProfile profile = PlayerDataManager.getProfile(player);
 
-        int points = PlayerDataManager.getPoints(uuid);
-        int speed = PlayerDataManager.getUpgrade(uuid, "speed");
-        int value = PlayerDataManager.getUpgrade(uuid, "value");
-        int storage = PlayerDataManager.getUpgrade(uuid, "storage");
+        long points = profile.getPoints();
+        int speed = profile.getLevel(Upgrade.SPEED);
+        int value = profile.getLevel(Upgrade.VALUE);
+        int storage = profile.getLevel(Upgrade.STORAGE);
 
         objective.getScore(ChatColor.YELLOW + "Tên: " + ChatColor.GREEN + player.getName()).setScore(6);
-        objective.getScore(ChatColor.YELLOW + "Điểm: " + ChatColor.AQUA + points).setScore(5);
+        objective.getScore(pointsLine(points)).setScore(5);
         objective.getScore(ChatColor.GREEN + "⛏ Speed: " + ChatColor.WHITE + speed).setScore(4);
         objective.getScore(ChatColor.GREEN + "💰 Value: " + ChatColor.WHITE + value).setScore(3);
         objective.getScore(ChatColor.GREEN + "📦 Storage: " + ChatColor.WHITE + storage).setScore(2);
@@ -35,4 +37,17 @@ public class ScoreboardDisplay {
 
         player.setScoreboard(board);
     }
+
+    // Chỉ thay dòng điểm trên sidebar đang hiển thị, không dựng lại cả bảng
+    public static void updatePoints(Player player, long oldPoints, long newPoints) {
+        Objective objective = player.getScoreboard().getObjective(OBJECTIVE);
+        if (objective == null) return;
+
+        player.getScoreboard().resetScores(pointsLine(oldPoints));
+        objective.getScore(pointsLine(newPoints)).setScore(5);
+    }
+
+    private static String pointsLine(long points) {
+        return ChatColor.YELLOW + "Điểm: " + ChatColor.AQUA + points;
+    }
 }
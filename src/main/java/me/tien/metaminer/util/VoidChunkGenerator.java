@@ -1,16 +0,0 @@
-package me.tien.metaminer.util;
-
-import org.bukkit.World;
-import org.bukkit.generator.ChunkGenerator;
-import org.jetbrains.annotations.NotNull;
-
-import java.util.Random;
-
-public class VoidChunkGenerator extends ChunkGenerator {
-
-    @Override
-    public @NotNull ChunkData generateChunkData(@NotNull World world, @NotNull Random random, int chunkX, int chunkZ, @NotNull BiomeGrid biome) {
-        // Create an empty chunk
-        return createChunkData(world);
-    }
-}
\ No newline at end of file